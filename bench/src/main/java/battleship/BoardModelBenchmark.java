@@ -0,0 +1,67 @@
+package battleship;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The JavaFX-free half of rendering: BoardModel updates and the dirty-cell
+// drain BoardView.render performs, without touching any Node.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardModelBenchmark {
+    private BoardModel model;
+    private int shot;
+
+    @Setup
+    public void setup() {
+        model = new BoardModel(BitBoard.SIZE, BitBoard.SIZE);
+    }
+
+    private int drain() {
+        int count = 0;
+        while (model.pollDirty() >= 0) {
+            count++;
+        }
+        return count;
+    }
+
+    // What a shot costs the view: one cell changes, one is redrawn
+    @Benchmark
+    public int singleShot() {
+        int cell = shot++ % BitBoard.CELLS;
+        model.set(cell / BitBoard.SIZE, cell % BitBoard.SIZE, (shot & 1) == 0 ? CellState.HIT : CellState.MISS);
+        return drain();
+    }
+
+    // Moving the placement preview by one cell
+    @Benchmark
+    public int movePreview() {
+        int col = shot++ % (BitBoard.SIZE - 2);
+        model.clearPreview();
+        for (int i = 0; i < 3; i++) {
+            model.preview(4, col + i, true);
+        }
+        return drain();
+    }
+
+    // Hiding a fleet between turns: a full refill that mostly changes nothing
+    @Benchmark
+    public int refill() {
+        model.set(4, 4, CellState.SHIP);
+        model.fill(CellState.WATER);
+        return drain();
+    }
+}
@@ -0,0 +1,114 @@
+package battleship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Single operations of the engine on a deployed 9x9 game. A cell can only be
+// shot once, so fireAndUndo takes every shot back with Game.undo and reports
+// the cost of the pair.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+    private static final int CELLS = BitBoard.CELLS;
+
+    private Game game;
+    private Player player;
+    private int[] order;
+    private int[][] layouts;
+    private Piece[] fleet;
+    private int layout;
+    private Piece piece;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        FleetGenerator generator = FleetGenerator.standard();
+        game = new Game("a", "b");
+        generator.fill(game.getPlayer(0), RuleSet.STANDARD.newFleet(), random);
+        generator.fill(game.getPlayer(1), RuleSet.STANDARD.newFleet(), random);
+        order = new int[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        layouts = new int[256][RuleSet.STANDARD.getFleetSize()];
+        for (int[] ids : layouts) {
+            generator.sample(random, ids);
+        }
+        player = new Player("placer");
+        fleet = RuleSet.STANDARD.newFleet();
+        piece = new Battleship();
+        piece.setPosition(4, 3, true);
+    }
+
+    // Fires the whole board, which also sinks the fleet, then takes it all back
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void fireAndUndo(Blackhole blackhole) {
+        for (int cell : order) {
+            blackhole.consume(game.fire(cell / BitBoard.SIZE, cell % BitBoard.SIZE));
+        }
+        for (int i = 0; i < CELLS; i++) {
+            game.undo();
+        }
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return game.isGameOver();
+    }
+
+    // Validity of every in-bounds placement of a 3-long piece next to a fleet
+    @Benchmark
+    @OperationsPerInvocation(2 * CELLS)
+    public void canPlace(Blackhole blackhole) {
+        Board board = game.getPlayer(1).getBoard();
+        for (int cell = 0; cell < CELLS; cell++) {
+            int row = cell / BitBoard.SIZE;
+            int col = cell % BitBoard.SIZE;
+            blackhole.consume(board.canPlace(3, row, col, true, true));
+            blackhole.consume(board.canPlace(3, row, col, false, true));
+        }
+    }
+
+    // placePiece for a whole fleet on a Player outside any Game, then clearPieces
+    @Benchmark
+    public void placeFleet(Blackhole blackhole) {
+        int[] ids = layouts[layout++ & (layouts.length - 1)];
+        for (int i = 0; i < fleet.length; i++) {
+            int cell = Placements.cell(ids[i]);
+            blackhole.consume(player.placePiece(fleet[i], cell / BitBoard.SIZE, cell % BitBoard.SIZE,
+                    Placements.isHorizontal(ids[i])));
+        }
+        player.clearPieces();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public void pieceHit(Blackhole blackhole) {
+        for (int col = 3; col < 6; col++) {
+            blackhole.consume(piece.hit(4, col));
+        }
+        for (int col = 3; col < 6; col++) {
+            piece.unhit(4, col);
+        }
+    }
+}
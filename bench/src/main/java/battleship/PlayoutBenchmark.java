@@ -0,0 +1,70 @@
+package battleship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One complete game per invocation: random fleets, then the strategy plays
+// both sides until a fleet is gone. The same seed sequence is replayed every
+// run, so results are comparable between builds.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayoutBenchmark {
+    @Param({ "random", "hunt", "heatmap" })
+    public String strategy;
+
+    private final FleetGenerator generator = FleetGenerator.standard();
+    private ShotStrategy[] players;
+    private long seed;
+
+    @Setup
+    public void setup() {
+        players = new ShotStrategy[] { Simulator.strategy(strategy).get(), Simulator.strategy(strategy).get() };
+    }
+
+    @Benchmark
+    public int playout() {
+        SplittableRandom random = new SplittableRandom(Simulator.gameSeed(42, seed++ & 0xFFFF));
+        Game game = new Game("a", "b");
+        generator.fill(game.getPlayer(0), RuleSet.STANDARD.newFleet(), random);
+        generator.fill(game.getPlayer(1), RuleSet.STANDARD.newFleet(), random);
+        players[0].newGame(RuleSet.STANDARD, random.split());
+        players[1].newGame(RuleSet.STANDARD, random.split());
+        int turn = 0;
+        int shots = 0;
+        while (true) {
+            ShotStrategy shooter = players[turn];
+            int cell = shooter.nextShot();
+            int row = cell / BitBoard.SIZE;
+            int col = cell % BitBoard.SIZE;
+            boolean hit = game.fire(row, col);
+            Piece sunk = null;
+            if (hit) {
+                Piece piece = game.getOpponent().getPieceAt(row, col);
+                if (piece.isDestroyed())
+                    sunk = piece;
+            }
+            shooter.shotResult(cell, hit, sunk);
+            shots++;
+            if (game.isGameOver())
+                return shots;
+            game.nextTurn();
+            turn ^= 1;
+        }
+    }
+}
@@ -13,11 +13,31 @@ public class App extends Application {
         Parent root = loader.load();
         Scene scene = new Scene(root, 900, 700);
         scene.setFill(javafx.scene.paint.Color.TRANSPARENT);
+        timePulses(scene);
         primaryStage.setTitle("Battleship Game");
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
+    // Times the CSS and layout pass of each pulse, where the pseudo-class
+    // changes made by BoardView.render are actually applied
+    private static void timePulses(Scene scene) {
+        Histogram layout = Metrics.histogram("ui.pulse-layout.nanos");
+        FlightEvents.Pulse[] event = new FlightEvents.Pulse[1];
+        long[] start = new long[1];
+        scene.addPreLayoutPulseListener(() -> {
+            event[0] = new FlightEvents.Pulse();
+            event[0].begin();
+            start[0] = Metrics.start();
+        });
+        scene.addPostLayoutPulseListener(() -> {
+            if (event[0] == null)
+                return;
+            layout.recordSince(start[0]);
+            event[0].commit();
+        });
+    }
+
     public static void main(String[] args) {
         launch(args);
  
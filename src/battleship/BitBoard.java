@@ -0,0 +1,214 @@
+package battleship;
+
+import java.util.Arrays;
+
+// 9x9 board packed into two longs per layer: cells 0-63 in lo, 64-80 in hi.
+public class BitBoard implements Board {
+    public static final int SIZE = 9;
+    public static final int CELLS = SIZE * SIZE;
+    public static final long FULL_LO = -1L;
+    public static final long FULL_HI = (1L << (CELLS - 64)) - 1;
+
+    private long shipLo;
+    private long shipHi;
+    private long shotLo;
+    private long shotHi;
+    private Piece[] pieces;
+    private int pieceCount;
+
+    public static int index(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    public static long lo(int index) {
+        return index < 64 ? 1L << index : 0L;
+    }
+
+    public static long hi(int index) {
+        return index < 64 ? 0L : 1L << (index - 64);
+    }
+
+    public static int bitCount(long lo, long hi) {
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+
+    // Index of the k-th (0-based) set bit of the mask pair.
+    public static int selectBit(long lo, long hi, int k) {
+        int low = Long.bitCount(lo);
+        long mask = lo;
+        int offset = 0;
+        if (k >= low) {
+            k -= low;
+            mask = hi;
+            offset = 64;
+        }
+        for (; k > 0; k--) {
+            mask &= mask - 1;
+        }
+        return offset + Long.numberOfTrailingZeros(mask);
+    }
+
+    @Override
+    public int getRows() {
+        return SIZE;
+    }
+
+    @Override
+    public int getCols() {
+        return SIZE;
+    }
+
+    @Override
+    public boolean hasShip(int row, int col) {
+        return hasShip(index(row, col));
+    }
+
+    @Override
+    public boolean isShot(int row, int col) {
+        return isShot(index(row, col));
+    }
+
+    @Override
+    public boolean shoot(int row, int col) {
+        return shoot(index(row, col));
+    }
+
+    @Override
+    public void unshoot(int row, int col) {
+        int index = index(row, col);
+        shotLo &= ~lo(index);
+        shotHi &= ~hi(index);
+    }
+
+    @Override
+    public long[] getShotCells() {
+        long[] cells = new long[bitCount(shotLo, shotHi)];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = selectBit(shotLo, shotHi, i);
+        }
+        return cells;
+    }
+
+    // Bounds come from the table; overlap and adjacency from one AND
+    @Override
+    public boolean canPlace(int size, int row, int col, boolean horizontal, boolean noTouching) {
+        int id = Placements.lookup(size, row, col, horizontal);
+        if (id < 0)
+            return false;
+        return noTouching ? !intersectsShips(Placements.haloLo(id), Placements.haloHi(id))
+                : !intersectsShips(Placements.footLo(id), Placements.footHi(id));
+    }
+
+    @Override
+    public void addPiece(Piece piece) {
+        int id = Placements.lookup(piece.getSize(), piece.getStartRow(), piece.getStartCol(), piece.isHorizontal());
+        if (id < 0)
+            throw new IllegalArgumentException("Piece is off the board");
+        piece.setMask(Placements.footLo(id), Placements.footHi(id));
+        addShips(piece.getMaskLo(), piece.getMaskHi());
+        if (pieces == null)
+            pieces = new Piece[4];
+        else if (pieceCount == pieces.length)
+            pieces = Arrays.copyOf(pieces, pieceCount * 2);
+        pieces[pieceCount++] = piece;
+    }
+
+    @Override
+    public void removePiece(Piece piece) {
+        for (int i = 0; i < pieceCount; i++) {
+            if (pieces[i] == piece) {
+                System.arraycopy(pieces, i + 1, pieces, i, pieceCount - i - 1);
+                pieces[--pieceCount] = null;
+                shipLo &= ~piece.getMaskLo();
+                shipHi &= ~piece.getMaskHi();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Piece getPieceAt(int row, int col) {
+        int index = index(row, col);
+        long lo = lo(index);
+        long hi = hi(index);
+        for (int i = 0; i < pieceCount; i++) {
+            Piece p = pieces[i];
+            if (((p.getMaskLo() & lo) | (p.getMaskHi() & hi)) != 0)
+                return p;
+        }
+        return null;
+    }
+
+    public boolean hasShip(int index) {
+        return index < 64 ? (shipLo >>> index & 1L) != 0 : (shipHi >>> (index - 64) & 1L) != 0;
+    }
+
+    public boolean isShot(int index) {
+        return index < 64 ? (shotLo >>> index & 1L) != 0 : (shotHi >>> (index - 64) & 1L) != 0;
+    }
+
+    public boolean isHit(int index) {
+        return hasShip(index) && isShot(index);
+    }
+
+    public boolean intersectsShips(long lo, long hi) {
+        return ((shipLo & lo) | (shipHi & hi)) != 0;
+    }
+
+    public void addShips(long lo, long hi) {
+        shipLo |= lo;
+        shipHi |= hi;
+    }
+
+    @Override
+    public void clearShips() {
+        shipLo = 0;
+        shipHi = 0;
+        pieces = null;
+        pieceCount = 0;
+    }
+
+    // Returns false if the cell was already shot.
+    public boolean shoot(int index) {
+        if (index < 64) {
+            long bit = 1L << index;
+            if ((shotLo & bit) != 0)
+                return false;
+            shotLo |= bit;
+        } else {
+            long bit = 1L << (index - 64);
+            if ((shotHi & bit) != 0)
+                return false;
+            shotHi |= bit;
+        }
+        return true;
+    }
+
+    public boolean allShipsHit() {
+        return ((shipLo & ~shotLo) | (shipHi & ~shotHi)) == 0;
+    }
+
+    public long getShipLo() {
+        return shipLo;
+    }
+
+    public long getShipHi() {
+        return shipHi;
+    }
+
+    public long getShotLo() {
+        return shotLo;
+    }
+
+    public long getShotHi() {
+        return shotHi;
+    }
+
+    public long getHitLo() {
+        return shipLo & shotLo;
+    }
+
+    public long getHitHi() {
+        return shipHi & shotHi;
+    }
+}
@@ -0,0 +1,32 @@
+package battleship;
+
+// Ship and shot storage behind a Player. Pieces are positioned with
+// Piece.setPosition before addPiece is called.
+public interface Board {
+    int getRows();
+
+    int getCols();
+
+    boolean hasShip(int row, int col);
+
+    boolean isShot(int row, int col);
+
+    // Returns false if the cell was already shot.
+    boolean shoot(int row, int col);
+
+    // Takes a shot back (undo)
+    void unshoot(int row, int col);
+
+    // Shot cells as row * cols + col, in no particular order
+    long[] getShotCells();
+
+    boolean canPlace(int size, int row, int col, boolean horizontal, boolean noTouching);
+
+    void addPiece(Piece piece);
+
+    void removePiece(Piece piece);
+
+    Piece getPieceAt(int row, int col);
+
+    void clearShips();
+}
@@ -0,0 +1,93 @@
+package battleship;
+
+import java.util.Arrays;
+
+// Display state of one grid plus the set of cells changed since the last
+// render, so the view only touches cells whose state actually changed.
+public class BoardModel {
+    private final int rows;
+    private final int cols;
+    private final CellState[] states;
+    private final boolean[] dirty;
+    private final int[] dirtyCells;
+    private int dirtyCount;
+    private final int[] previewCells;
+    private int previewCount;
+
+    public BoardModel(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        states = new CellState[rows * cols];
+        Arrays.fill(states, CellState.WATER);
+        dirty = new boolean[rows * cols];
+        dirtyCells = new int[rows * cols];
+        previewCells = new int[rows * cols];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public CellState get(int row, int col) {
+        return states[row * cols + col];
+    }
+
+    public void set(int row, int col, CellState state) {
+        set(row * cols + col, state);
+    }
+
+    private void set(int index, CellState state) {
+        if (states[index] == state)
+            return;
+        states[index] = state;
+        if (!dirty[index]) {
+            dirty[index] = true;
+            dirtyCells[dirtyCount++] = index;
+        }
+    }
+
+    public void fill(CellState state) {
+        for (int i = 0; i < states.length; i++) {
+            set(i, state);
+        }
+        previewCount = 0;
+    }
+
+    // Previews only ever cover open water
+    public void preview(int row, int col, boolean canPlace) {
+        int index = row * cols + col;
+        if (states[index] != CellState.WATER)
+            return;
+        set(index, canPlace ? CellState.PREVIEW_OK : CellState.PREVIEW_BAD);
+        previewCells[previewCount++] = index;
+    }
+
+    public void clearPreview() {
+        for (int i = 0; i < previewCount; i++) {
+            if (states[previewCells[i]].isPreview())
+                set(previewCells[i], CellState.WATER);
+        }
+        previewCount = 0;
+    }
+
+    public int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    // Next changed cell index (row * cols + col), or -1 when clean
+    public int pollDirty() {
+        if (dirtyCount == 0)
+            return -1;
+        int index = dirtyCells[--dirtyCount];
+        dirty[index] = false;
+        return index;
+    }
+
+    public CellState get(int index) {
+        return states[index];
+    }
+}
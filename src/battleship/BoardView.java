@@ -0,0 +1,95 @@
+package battleship;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import javafx.css.PseudoClass;
+import javafx.scene.control.Button;
+import javafx.scene.layout.GridPane;
+
+// Buttons of one GridPane indexed by cell, rendered from a BoardModel.
+public class BoardView {
+    public interface CellHandler {
+        void cellClicked(int row, int col);
+    }
+
+    private static final Map<CellState, PseudoClass> PSEUDO_CLASSES = new EnumMap<>(CellState.class);
+    private static final Histogram RENDER_NANOS = Metrics.histogram("ui.render.nanos");
+
+    static {
+        for (CellState state : CellState.values()) {
+            PSEUDO_CLASSES.put(state, PseudoClass.getPseudoClass(state.name().toLowerCase().replace('_', '-')));
+        }
+    }
+
+    private final GridPane grid;
+    private final BoardModel model;
+    private final Button[] buttons;
+    private final CellState[] shown;
+    private CellHandler handler;
+
+    public BoardView(GridPane grid, int rows, int cols) {
+        this.grid = grid;
+        this.model = new BoardModel(rows, cols);
+        this.buttons = new Button[rows * cols];
+        this.shown = new CellState[rows * cols];
+        grid.getChildren().clear();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                Button btn = new Button();
+                btn.setPrefSize(30, 30);
+                btn.getStyleClass().add("board-cell");
+                btn.pseudoClassStateChanged(PSEUDO_CLASSES.get(CellState.WATER), true);
+                shown[row * cols + col] = CellState.WATER;
+                int r = row;
+                int c = col;
+                btn.setOnAction(e -> {
+                    if (handler != null)
+                        handler.cellClicked(r, c);
+                });
+                buttons[row * cols + col] = btn;
+                grid.add(btn, col, row);
+            }
+        }
+    }
+
+    public GridPane getGrid() {
+        return grid;
+    }
+
+    public BoardModel getModel() {
+        return model;
+    }
+
+    public Button getButton(int row, int col) {
+        return buttons[row * model.getCols() + col];
+    }
+
+    public void setOnCellClicked(CellHandler handler) {
+        this.handler = handler;
+    }
+
+    // Flips pseudo-classes on the cells changed since the last render; the
+    // stylesheet does the rest, so no inline CSS is parsed per click
+    public void render() {
+        FlightEvents.Restyle event = new FlightEvents.Restyle();
+        event.begin();
+        long start = Metrics.start();
+        int restyled = 0;
+        int index;
+        while ((index = model.pollDirty()) >= 0) {
+            CellState state = model.get(index);
+            if (shown[index] == state)
+                continue;
+            buttons[index].pseudoClassStateChanged(PSEUDO_CLASSES.get(shown[index]), false);
+            buttons[index].pseudoClassStateChanged(PSEUDO_CLASSES.get(state), true);
+            shown[index] = state;
+            restyled++;
+        }
+        RENDER_NANOS.recordSince(start);
+        if (event.shouldCommit()) {
+            event.cells = restyled;
+            event.commit();
+        }
+    }
+}
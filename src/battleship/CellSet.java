@@ -0,0 +1,106 @@
+package battleship;
+
+import java.util.Arrays;
+
+// Open-addressing hash set of non-negative cell numbers, without boxing.
+public class CellSet {
+    private static final long EMPTY = -1L;
+
+    private long[] table;
+    private int size;
+
+    public CellSet() {
+        table = new long[16];
+        Arrays.fill(table, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long cell) {
+        int mask = table.length - 1;
+        for (int i = slot(cell, mask);; i = (i + 1) & mask) {
+            long v = table[i];
+            if (v == cell)
+                return true;
+            if (v == EMPTY)
+                return false;
+        }
+    }
+
+    // Returns false if the cell was already present.
+    public boolean add(long cell) {
+        int mask = table.length - 1;
+        for (int i = slot(cell, mask);; i = (i + 1) & mask) {
+            long v = table[i];
+            if (v == cell)
+                return false;
+            if (v == EMPTY) {
+                table[i] = cell;
+                if (++size * 2 > table.length)
+                    grow();
+                return true;
+            }
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    public boolean remove(long cell) {
+        int mask = table.length - 1;
+        int i = slot(cell, mask);
+        while (table[i] != cell) {
+            if (table[i] == EMPTY)
+                return false;
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        for (int j = (i + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(table[j], mask);
+            // Move j into the hole unless its home lies cyclically in (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                table[hole] = table[j];
+                hole = j;
+            }
+        }
+        table[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public long[] toArray() {
+        long[] cells = new long[size];
+        int n = 0;
+        for (long v : table) {
+            if (v != EMPTY)
+                cells[n++] = v;
+        }
+        return cells;
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        Arrays.fill(table, EMPTY);
+        int mask = table.length - 1;
+        for (long v : old) {
+            if (v == EMPTY)
+                continue;
+            int i = slot(v, mask);
+            while (table[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            table[i] = v;
+        }
+    }
+
+    private static int slot(long cell, int mask) {
+        long h = cell * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
@@ -0,0 +1,10 @@
+package battleship;
+
+// What a board cell shows in the UI, independent of JavaFX.
+public enum CellState {
+    WATER, SHIP, HIT, MISS, PREVIEW_OK, PREVIEW_BAD;
+
+    public boolean isPreview() {
+        return this == PREVIEW_OK || this == PREVIEW_BAD;
+    }
+}
@@ -0,0 +1,187 @@
+package battleship;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+// One client socket of a GameServer. Reads only happen on the owning reactor
+// thread; sends may come from any thread holding a match lock, so the output
+// buffer is guarded by the connection itself. A send writes straight to the
+// socket and only falls back to OP_WRITE when the kernel buffer is full.
+public class Connection {
+    private static final int BUFFER = 8 * 1024;
+
+    private final GameServer.Reactor reactor;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ByteBuffer in = ByteBuffer.allocate(BUFFER);
+    private final ByteBuffer out = ByteBuffer.allocate(BUFFER);
+    private String name;
+    private volatile Match match;
+    private volatile int seat;
+    private volatile boolean closed;
+
+    Connection(GameServer.Reactor reactor, SocketChannel channel, SelectionKey key) {
+        this.reactor = reactor;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    GameServer.Reactor getReactor() {
+        return reactor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    public Match getMatch() {
+        return match;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    void join(Match match, int seat) {
+        this.seat = seat;
+        this.match = match;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Reactor thread only
+    void read() throws IOException {
+        if (channel.read(in) < 0) {
+            close();
+            return;
+        }
+        in.flip();
+        int length;
+        while (!closed && (length = Protocol.frameLength(in)) >= 0) {
+            int end = in.position() + length;
+            byte type = in.get();
+            int payload = in.get() & 0xFF;
+            reactor.getServer().handle(this, type, in, payload);
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    // Reactor thread only, once the socket is writable again
+    void writable() throws IOException {
+        synchronized (this) {
+            flush();
+        }
+    }
+
+    synchronized void send(byte type, int a) {
+        if (begin(type, 1)) {
+            out.put((byte) a);
+            end();
+        }
+    }
+
+    synchronized void send(byte type, int a, int b) {
+        if (begin(type, 2)) {
+            out.put((byte) a).put((byte) b);
+            end();
+        }
+    }
+
+    synchronized void sendShot(int shooter, int row, int col, int result) {
+        if (begin(Protocol.SHOT, 6)) {
+            out.put((byte) shooter);
+            Protocol.putCoord(out, row);
+            Protocol.putCoord(out, col);
+            out.put((byte) result);
+            end();
+        }
+    }
+
+    synchronized void sendSalvo(int shooter, int[] rows, int[] cols, long result) {
+        if (begin(Protocol.SALVO_RESULT, 10 + 4 * rows.length)) {
+            out.put((byte) shooter).put((byte) rows.length);
+            for (int i = 0; i < rows.length; i++) {
+                Protocol.putCoord(out, rows[i]);
+                Protocol.putCoord(out, cols[i]);
+            }
+            out.putLong(result);
+            end();
+        }
+    }
+
+    synchronized void sendMatched(int seat, RuleSet rules, String opponent) {
+        int[] fleet = rules.getFleet();
+        byte[] opponentName = Protocol.encodeName(opponent);
+        if (begin(Protocol.MATCHED, 7 + 2 * fleet.length + opponentName.length)) {
+            out.put((byte) seat);
+            Protocol.putCoord(out, rules.getRows());
+            Protocol.putCoord(out, rules.getCols());
+            out.put((byte) ((rules.isNoTouching() ? Protocol.NO_TOUCHING : 0)
+                    | (rules.isSalvo() ? Protocol.SALVO_RULES : 0)));
+            out.put((byte) fleet.length);
+            for (int size : fleet) {
+                Protocol.putCoord(out, size);
+            }
+            out.put(opponentName);
+            end();
+        }
+    }
+
+    private boolean begin(byte type, int payload) {
+        if (closed)
+            return false;
+        if (out.remaining() < Protocol.HEADER + payload) {
+            // The client stopped reading; drop it rather than buffer without bound
+            reactor.execute(this::close);
+            closed = true;
+            return false;
+        }
+        Protocol.putHeader(out, type, payload);
+        return true;
+    }
+
+    private void end() {
+        try {
+            flush();
+        } catch (IOException e) {
+            closed = true;
+            reactor.execute(this::close);
+        }
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        channel.write(out);
+        boolean pending = out.hasRemaining();
+        out.compact();
+        int ops = pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (key.isValid() && key.interestOps() != ops) {
+            key.interestOps(ops);
+            if (!reactor.inReactor())
+                key.selector().wakeup();
+        }
+    }
+
+    // Reactor thread only
+    void close() {
+        if (!channel.isOpen())
+            return;
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        reactor.getServer().disconnected(this);
+    }
+}
@@ -0,0 +1,224 @@
+package battleship;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Text launcher for everything that needs no window: a game against the
+// computer on the console, the simulator, tournaments, layout counting, move
+// log statistics, training data export and saved game validation. It only
+// touches the engine classes, so it starts without the JavaFX runtime on the
+// module path. batch runs many commands in one JVM, which is cheaper still
+// than a fast start; command.txt shows how to give either launcher a
+// class-data sharing archive.
+public class Console {
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    public Console(BufferedReader in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    // Usage: Console play [strategy] [seed]
+    //        Console simulate [games] [strategyA] [strategyB] [seed] [move log]
+    //        Console tournament [games per pair] [seed] [swiss rounds] [strategy]...
+    //        Console count [samples]
+    //        Console stats <move log>
+    //        Console export <training log> [games] [strategyA] [strategyB] [seed]
+    //        Console validate <saved game>...
+    //        Console batch [file]   one of the commands above a line, from the file or stdin
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        if (!new Console(in, System.out).run(args))
+            System.exit(1);
+    }
+
+    // Returns false if the command failed
+    public boolean run(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "play";
+        String[] rest = args.length > 0 ? Arrays.copyOfRange(args, 1, args.length) : args;
+        switch (command) {
+            case "play":
+                play(rest.length > 0 ? rest[0] : "heatmap",
+                        rest.length > 1 ? new SplittableRandom(Long.parseLong(rest[1])) : new SplittableRandom());
+                return true;
+            case "simulate":
+                Simulator.main(rest);
+                return true;
+            case "tournament":
+                Tournament.main(rest);
+                return true;
+            case "count":
+                LayoutCounter.main(rest);
+                return true;
+            case "stats":
+                GameStats.main(rest);
+                return true;
+            case "export":
+                TrainingLog.main(rest);
+                return true;
+            case "validate":
+                return validate(rest);
+            case "batch":
+                if (rest.length == 0)
+                    return batch(in);
+                try (BufferedReader file = Files.newBufferedReader(Paths.get(rest[0]))) {
+                    return batch(file);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    // Blank lines and lines starting with # are skipped; a failed command is
+    // reported and the batch goes on
+    private boolean batch(BufferedReader commands) throws IOException {
+        boolean ok = true;
+        String line;
+        while ((line = commands.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] args = line.split("\\s+");
+            if (args[0].equals("batch") || args[0].equals("play")) {
+                out.println(line + ": not allowed in a batch");
+                ok = false;
+                continue;
+            }
+            try {
+                ok &= run(args);
+            } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+                out.println(line + ": " + e.getMessage());
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    // Loads each saved game and replays its journal
+    private boolean validate(String[] files) {
+        boolean ok = true;
+        for (String file : files) {
+            try {
+                Game game = Game.load(Paths.get(file));
+                String state = game.isGameOver() ? game.getWinner() + " won" : "in progress";
+                out.println(file + ": ok, " + game.getPosition() + " moves, " + state);
+            } catch (IOException | RuntimeException e) {
+                out.println(file + ": invalid, " + e);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    private void play(String strategyName, SplittableRandom random) throws IOException {
+        RuleSet rules = RuleSet.STANDARD;
+        ShotStrategy computer = Simulator.strategy(strategyName).get();
+        computer.newGame(rules, random.split());
+        Game game = new Game("You", "Computer", rules);
+        FleetGenerator fleet = new FleetGenerator(rules);
+        fleet.fill(game.getPlayer(0), rules.newFleet(), random);
+        fleet.fill(game.getPlayer(1), rules.newFleet(), random);
+        Player human = game.getPlayer(0);
+        out.println("Your fleet is placed at random. Fire with a row letter and column, e.g. B7; q quits.");
+        while (!game.isGameOver()) {
+            if (game.getCurrentPlayer() == human) {
+                print(game);
+                int cell = readShot(game);
+                if (cell < 0)
+                    return;
+                int row = cell / BitBoard.SIZE;
+                int col = cell % BitBoard.SIZE;
+                out.println(describe(game, row, col, game.fire(row, col)));
+            } else {
+                int cell = computer.nextShot();
+                int row = cell / BitBoard.SIZE;
+                int col = cell % BitBoard.SIZE;
+                boolean hit = game.fire(row, col);
+                Piece piece = hit ? human.getPieceAt(row, col) : null;
+                computer.shotResult(cell, hit, piece != null && piece.isDestroyed() ? piece : null);
+                out.println("Computer fires at " + name(row, col) + ": " + describe(game, row, col, hit));
+            }
+            if (!game.isGameOver())
+                game.nextTurn();
+        }
+        print(game);
+        out.println(game.getWinner().equals(human.getName()) ? "You win!" : "The computer wins.");
+    }
+
+    // A cell not shot at yet, or -1 to quit
+    private int readShot(Game game) throws IOException {
+        while (true) {
+            out.print("> ");
+            out.flush();
+            String line = in.readLine();
+            if (line == null || line.trim().equalsIgnoreCase("q"))
+                return -1;
+            line = line.trim().toUpperCase();
+            try {
+                int row = line.charAt(0) - 'A';
+                int col = Integer.parseInt(line.substring(1).trim()) - 1;
+                if (row < 0 || row >= BitBoard.SIZE || col < 0 || col >= BitBoard.SIZE) {
+                    out.println("Off the board: " + line);
+                } else if (game.getOpponent().getBoard().isShot(row, col)) {
+                    out.println("Already fired at " + line);
+                } else {
+                    return BitBoard.index(row, col);
+                }
+            } catch (RuntimeException e) {
+                out.println("Not a cell: " + line);
+            }
+        }
+    }
+
+    private static String describe(Game game, int row, int col, boolean hit) {
+        if (!hit)
+            return "miss";
+        Piece piece = game.getOpponent().getPieceAt(row, col);
+        return piece.isDestroyed() ? "hit, sunk" : "hit";
+    }
+
+    private static String name(int row, int col) {
+        return (char) ('A' + row) + Integer.toString(col + 1);
+    }
+
+    // Your board on the left, what you know of the computer's on the right:
+    // # ship, X hit, o miss
+    private void print(Game game) {
+        Board mine = game.getPlayer(0).getBoard();
+        Board theirs = game.getPlayer(1).getBoard();
+        StringBuilder sb = new StringBuilder("   ");
+        for (int col = 1; col <= BitBoard.SIZE; col++) {
+            sb.append(col).append(' ');
+        }
+        String header = sb.toString();
+        out.println(header + "     " + header);
+        for (int row = 0; row < BitBoard.SIZE; row++) {
+            sb.setLength(0);
+            sb.append((char) ('A' + row)).append("  ");
+            for (int col = 0; col < BitBoard.SIZE; col++) {
+                sb.append(mark(mine, row, col, true)).append(' ');
+            }
+            sb.append("     ").append((char) ('A' + row)).append("  ");
+            for (int col = 0; col < BitBoard.SIZE; col++) {
+                sb.append(mark(theirs, row, col, false)).append(' ');
+            }
+            out.println(sb);
+        }
+    }
+
+    private static char mark(Board board, int row, int col, boolean showShips) {
+        boolean ship = board.hasShip(row, col);
+        if (board.isShot(row, col))
+            return ship ? 'X' : 'o';
+        return ship && showShips ? '#' : '.';
+    }
+}
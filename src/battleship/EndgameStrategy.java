@@ -0,0 +1,503 @@
+package battleship;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// Plays the heatmap until the fleet layouts consistent with the shots so far
+// can be listed, then fires at the cell with a ship in the most of them: the
+// exact chance of a hit, where the heatmap scores each piece on its own. Once
+// few layouts are left it plays exactly: expectimax over all of them picks the
+// shot with the fewest expected misses until the fleet is sunk. What is left
+// to play depends only on the layouts still possible, so a position is keyed
+// by a Zobrist hash of those: the same position reached in another order,
+// search or game is solved once and found in the shared TranspositionTable.
+// Nodes with many layouts search their shots on the fork-join pool.
+public class EndgameStrategy implements ShotStrategy {
+    // Past this many consistent layouts the heatmap keeps playing
+    private static final int MAX_ENUMERATED = 20_000;
+    // Placements clear of the shots that allow more layouts than this, were
+    // pieces never to overlap, are not worth trying to list
+    private static final double MAX_BOUND = 1 << 21;
+    // Past this many layouts the likeliest cell is fired at instead of
+    // searching. The search about doubles with every two layouts more; over
+    // 1000 games an exact shot took 1.6 ms on average, but the worst at 14
+    // layouts took about 300 ms.
+    private static final int MAX_LAYOUTS = 14;
+    // Nodes with at least this many layouts fork a task per shot
+    private static final int FORK_LAYOUTS = 10;
+
+    // Shot outcomes; a sink is the id of the sunk placement
+    private static final int MISS = -2;
+    private static final int HIT = -1;
+    private static final int DONE = -3;
+
+    private static final long[] PLACEMENT_KEY = new long[Placements.COUNT];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EABA77L);
+        for (int id = 0; id < Placements.COUNT; id++) {
+            PLACEMENT_KEY[id] = random.nextLong();
+        }
+    }
+
+    private final TranspositionTable table;
+    private final HeatmapStrategy heatmap = new HeatmapStrategy();
+    private final int[] afloat = new int[Placements.MAX_SIZE + 1];
+    private boolean noTouching;
+    private long shotLo, shotHi;
+    private long hitLo, hitHi;
+    private long sunkLo, sunkHi;
+    private long salt;
+
+    // Once enumerated: each layout's ship mask and the placements of its pieces
+    private int pieces;
+    private long[] layoutLo;
+    private long[] layoutHi;
+    private int[] layoutIds;
+    private long[] layoutKey;
+    private int layoutCount;
+    // Layouts still consistent with the shots
+    private int[] candidates;
+    private int count;
+
+    public EndgameStrategy() {
+        this(TranspositionTable.shared());
+    }
+
+    public EndgameStrategy(TranspositionTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public String getName() {
+        return "endgame";
+    }
+
+    @Override
+    public void newGame(RuleSet rules, SplittableRandom random) {
+        heatmap.newGame(rules, random);
+        noTouching = rules.isNoTouching();
+        Arrays.fill(afloat, 0);
+        for (int size : rules.getFleet()) {
+            afloat[size]++;
+        }
+        shotLo = shotHi = hitLo = hitHi = sunkLo = sunkHi = 0;
+        // Positions of different rule sets must not share keys
+        salt = new SplittableRandom(Arrays.hashCode(rules.getFleet()) * 2L + (noTouching ? 1 : 0)).nextLong();
+        candidates = null;
+        table.newGeneration();
+    }
+
+    @Override
+    public int nextShot() {
+        if (candidates == null && !enumerate())
+            return heatmap.nextShot();
+        if (count > MAX_LAYOUTS)
+            return likeliest();
+        int[] best = new int[1];
+        search(candidates, count, hitLo, hitHi, Float.POSITIVE_INFINITY, best);
+        return best[0];
+    }
+
+    @Override
+    public void shotResult(int index, boolean hit, Piece sunk) {
+        heatmap.shotResult(index, hit, sunk);
+        int outcome = hit ? HIT : MISS;
+        if (sunk != null)
+            outcome = Placements.id(sunk.getSize(), sunk.getStartRow(), sunk.getStartCol(),
+                    sunk.getSize() == 1 || sunk.isHorizontal());
+        if (candidates != null) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (outcome(candidates[i], index, hitLo, hitHi) == outcome)
+                    candidates[kept++] = candidates[i];
+            }
+            count = kept;
+            if (count == 0)
+                candidates = null;
+        }
+        shotLo |= BitBoard.lo(index);
+        shotHi |= BitBoard.hi(index);
+        if (hit) {
+            hitLo |= BitBoard.lo(index);
+            hitHi |= BitBoard.hi(index);
+        }
+        if (sunk != null) {
+            sunkLo |= sunk.getMaskLo();
+            sunkHi |= sunk.getMaskHi();
+            afloat[sunk.getSize()]--;
+        }
+    }
+
+    // Number of layouts still consistent once listed, or 0 while the heatmap plays
+    public int getCandidates() {
+        return candidates == null ? 0 : count;
+    }
+
+    // The unshot cell with a ship in the most candidate layouts
+    private int likeliest() {
+        int[] cover = new int[BitBoard.CELLS];
+        for (int i = 0; i < count; i++) {
+            int layout = candidates[i];
+            for (long lo = layoutLo[layout] & ~hitLo; lo != 0; lo &= lo - 1) {
+                cover[Long.numberOfTrailingZeros(lo)]++;
+            }
+            for (long hi = layoutHi[layout] & ~hitHi; hi != 0; hi &= hi - 1) {
+                cover[64 + Long.numberOfTrailingZeros(hi)]++;
+            }
+        }
+        int best = 0;
+        for (int cell = 1; cell < BitBoard.CELLS; cell++) {
+            if (cover[cell] > cover[best])
+                best = cell;
+        }
+        return best;
+    }
+
+    // Lists the layouts of the unsunk pieces that fit the shots so far, or
+    // gives up past MAX_ENUMERATED.
+    private boolean enumerate() {
+        if (!fewLayouts())
+            return false;
+        int[] left = afloat.clone();
+        pieces = 0;
+        for (int n : left) {
+            pieces += n;
+        }
+        layoutLo = new long[64];
+        layoutHi = new long[64];
+        layoutIds = new int[64 * pieces];
+        layoutKey = new long[64];
+        layoutCount = 0;
+        if (!cover(left, new int[pieces], 0, 0, 0) || layoutCount == 0) {
+            layoutLo = layoutHi = null;
+            layoutIds = null;
+            layoutKey = null;
+            return false;
+        }
+        candidates = new int[layoutCount];
+        for (int i = 0; i < layoutCount; i++) {
+            candidates[i] = i;
+        }
+        count = layoutCount;
+        return true;
+    }
+
+    // Whether the pieces could have few enough layouts to list. Counting each
+    // piece's placements clear of the shots as if pieces never overlapped
+    // overestimates the layouts; in simulated games no position with a count
+    // above MAX_BOUND had MAX_ENUMERATED layouts or fewer.
+    private boolean fewLayouts() {
+        double bound = 1;
+        for (int size = 1; size <= Placements.MAX_SIZE; size++) {
+            if (afloat[size] == 0)
+                continue;
+            int fit = 0;
+            for (int id : Placements.ofSize(size)) {
+                if (fits(id, 0, 0))
+                    fit++;
+            }
+            for (int i = 1; i <= afloat[size]; i++) {
+                bound *= (double) fit / i;
+            }
+        }
+        return bound <= MAX_BOUND;
+    }
+
+    // Covers the first open hit with each piece that can, until every open hit
+    // is covered; placing pieces anywhere first would mostly build layouts that
+    // miss a hit. False once there are too many layouts.
+    private boolean cover(int[] left, int[] ids, int k, long lo, long hi) {
+        long openLo = hitLo & ~sunkLo & ~lo;
+        long openHi = hitHi & ~sunkHi & ~hi;
+        if ((openLo | openHi) == 0) {
+            int[] sizes = new int[pieces - k];
+            int j = 0;
+            for (int size = Placements.MAX_SIZE; size >= 1; size--) {
+                for (int i = 0; i < left[size]; i++) {
+                    sizes[j++] = size;
+                }
+            }
+            return place(sizes, 0, ids, k, lo, hi);
+        }
+        int cell = openLo != 0 ? Long.numberOfTrailingZeros(openLo) : 64 + Long.numberOfTrailingZeros(openHi);
+        for (int id : Placements.touching(cell)) {
+            int size = Placements.size(id);
+            if (left[size] == 0 || !Placements.contains(Placements.footLo(id), Placements.footHi(id), cell)
+                    || !fits(id, lo, hi))
+                continue;
+            left[size]--;
+            ids[k] = id;
+            boolean more = cover(left, ids, k + 1, lo | Placements.footLo(id), hi | Placements.footHi(id));
+            left[size]++;
+            if (!more)
+                return false;
+        }
+        return true;
+    }
+
+    // Places the rest of the pieces, largest first, after the k in ids
+    private boolean place(int[] sizes, int j, int[] ids, int k, long lo, long hi) {
+        if (j == sizes.length) {
+            if (layoutCount == MAX_ENUMERATED)
+                return false;
+            if (layoutCount == layoutLo.length) {
+                layoutLo = Arrays.copyOf(layoutLo, layoutCount * 2);
+                layoutHi = Arrays.copyOf(layoutHi, layoutCount * 2);
+                layoutIds = Arrays.copyOf(layoutIds, layoutCount * 2 * pieces);
+                layoutKey = Arrays.copyOf(layoutKey, layoutCount * 2);
+            }
+            layoutLo[layoutCount] = lo;
+            layoutHi[layoutCount] = hi;
+            System.arraycopy(ids, 0, layoutIds, layoutCount * pieces, pieces);
+            long key = 0;
+            for (int id : ids) {
+                key ^= PLACEMENT_KEY[id];
+            }
+            // Mixed, so that sets of layouts sharing placements do not cancel out
+            layoutKey[layoutCount] = new SplittableRandom(key).nextLong();
+            layoutCount++;
+            return true;
+        }
+        // Identical pieces are placed in increasing id order to list each layout once
+        int first = j > 0 && sizes[j - 1] == sizes[j] ? ids[k - 1] + 1 : 0;
+        for (int id : Placements.ofSize(sizes[j])) {
+            if (id < first || !fits(id, lo, hi))
+                continue;
+            ids[k] = id;
+            if (!place(sizes, j + 1, ids, k + 1, lo | Placements.footLo(id), hi | Placements.footHi(id)))
+                return false;
+        }
+        return true;
+    }
+
+    // Whether the placement fits next to the ships so far and the shots
+    private boolean fits(int id, long lo, long hi) {
+        long footLo = Placements.footLo(id);
+        long footHi = Placements.footHi(id);
+        long reachLo = noTouching ? Placements.haloLo(id) : footLo;
+        long reachHi = noTouching ? Placements.haloHi(id) : footHi;
+        long blockedLo = (shotLo & ~hitLo) | sunkLo;
+        long blockedHi = (shotHi & ~hitHi) | sunkHi;
+        long takenLo = lo | (noTouching ? sunkLo : 0);
+        long takenHi = hi | (noTouching ? sunkHi : 0);
+        if (((footLo & blockedLo) | (footHi & blockedHi) | (reachLo & takenLo) | (reachHi & takenHi)) != 0)
+            return false;
+        // A ship hit on every cell would have been reported sunk
+        return ((footLo & ~hitLo) | (footHi & ~hitHi)) != 0;
+    }
+
+    // What shooting the cell reports if the layout is the real one, given the hits before it
+    private int outcome(int layout, int cell, long hitLo, long hitHi) {
+        if (!Placements.contains(layoutLo[layout], layoutHi[layout], cell))
+            return MISS;
+        for (int k = 0; k < pieces; k++) {
+            int id = layoutIds[layout * pieces + k];
+            long footLo = Placements.footLo(id);
+            long footHi = Placements.footHi(id);
+            if (!Placements.contains(footLo, footHi, cell))
+                continue;
+            long leftLo = footLo & ~hitLo & ~BitBoard.lo(cell);
+            long leftHi = footHi & ~hitHi & ~BitBoard.hi(cell);
+            return (leftLo | leftHi) == 0 ? id : HIT;
+        }
+        throw new IllegalStateException("Layout " + layout + " has no piece on cell " + cell);
+    }
+
+    // Expected misses from the position on under best play, if below the
+    // bound; otherwise some value from the bound up, which is all a caller
+    // needs to reject the shot leading here. Values are rounded to float, the
+    // precision the table keeps, so a cached and a freshly searched position
+    // always compare the same.
+    private float value(int[] layouts, int n, long hitLo, long hitHi, float bound) {
+        if (n == 1)
+            return 0;
+        long key = salt;
+        long sureLo = -1;
+        long sureHi = -1;
+        for (int i = 0; i < n; i++) {
+            key ^= layoutKey[layouts[i]];
+            sureLo &= layoutLo[layouts[i]];
+            sureHi &= layoutHi[layouts[i]];
+        }
+        // Sure hits are shot at once, so only positions without any are cached.
+        // In those every cell shared by all the layouts is hit and no other
+        // cell of theirs is, so the layouts alone make the key.
+        sureLo &= ~hitLo;
+        sureHi &= ~hitHi;
+        if ((sureLo | sureHi) != 0) {
+            int cell = sureLo != 0 ? Long.numberOfTrailingZeros(sureLo) : 64 + Long.numberOfTrailingZeros(sureHi);
+            return shoot(cell, layouts, n, hitLo, hitHi, bound);
+        }
+        long data = table.probe(key);
+        if (data != TranspositionTable.MISSING) {
+            float value = TranspositionTable.value(data);
+            if (TranspositionTable.isExact(data) || value >= bound)
+                return value;
+        }
+        float value = search(layouts, n, hitLo, hitHi, bound, null);
+        table.store(key, value, value < bound, n);
+        return value;
+    }
+
+    private float search(int[] layouts, int n, long hitLo, long hitHi, float bound, int[] best) {
+        // Layouts a shot at each cell hits, and a hash of what the shot reports in each
+        int[] cover = new int[BitBoard.CELLS];
+        long[] split = new long[BitBoard.CELLS];
+        for (int i = 0; i < n; i++) {
+            int layout = layouts[i];
+            for (int k = 0; k < pieces; k++) {
+                int id = layoutIds[layout * pieces + k];
+                long lo = Placements.footLo(id) & ~hitLo;
+                long hi = Placements.footHi(id) & ~hitHi;
+                long outcome = layoutKey[layout] * (BitBoard.bitCount(lo, hi) == 1 ? PLACEMENT_KEY[id] | 1 : 1);
+                for (; lo != 0; lo &= lo - 1) {
+                    cover[Long.numberOfTrailingZeros(lo)]++;
+                    split[Long.numberOfTrailingZeros(lo)] ^= outcome;
+                }
+                for (; hi != 0; hi &= hi - 1) {
+                    cover[64 + Long.numberOfTrailingZeros(hi)]++;
+                    split[64 + Long.numberOfTrailingZeros(hi)] ^= outcome;
+                }
+            }
+        }
+        // A cell that is a ship in every layout costs nothing to shoot first
+        int[] shots = new int[BitBoard.CELLS];
+        int m = 0;
+        cells: for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (cover[cell] == n) {
+                if (best != null)
+                    best[0] = cell;
+                return shoot(cell, layouts, n, hitLo, hitHi, bound);
+            }
+            if (cover[cell] > 0) {
+                // Cells that split the layouts alike are worth the same: after
+                // either, the other is a sure hit or a sure miss
+                for (int i = 0; i < m; i++) {
+                    if (split[shots[i]] == split[cell])
+                        continue cells;
+                }
+                // Likeliest hits first, for early cutoffs
+                int j = m++;
+                for (; j > 0 && cover[shots[j - 1]] < cover[cell]; j--) {
+                    shots[j] = shots[j - 1];
+                }
+                shots[j] = cell;
+            }
+        }
+        if (m == 0)
+            return 0;
+        float bestValue = bound;
+        int pick = shots[0];
+        if (n >= FORK_LAYOUTS) {
+            Shot[] tasks = new Shot[m];
+            for (int i = 0; i < m; i++) {
+                tasks[i] = new Shot(shots[i], layouts, n, hitLo, hitHi, bound);
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for (Shot task : tasks) {
+                float value = task.join();
+                if (value < bestValue) {
+                    bestValue = value;
+                    pick = task.cell;
+                }
+            }
+        } else {
+            for (int i = 0; i < m; i++) {
+                int cell = shots[i];
+                // Every miss costs one shot, so this shot's misses alone bound its value
+                if ((double) (n - cover[cell]) / n >= bestValue)
+                    break;
+                float value = shoot(cell, layouts, n, hitLo, hitHi, bestValue);
+                if (value < bestValue) {
+                    bestValue = value;
+                    pick = cell;
+                }
+            }
+        }
+        if (best != null)
+            best[0] = pick;
+        return bestValue;
+    }
+
+    // Expected misses when shooting the cell next, or some value from the
+    // bound up once the shot is known to be no better than the bound.
+    private float shoot(int cell, int[] layouts, int n, long hitLo, long hitHi, float bound) {
+        int[] outcomes = new int[n];
+        int misses = 0;
+        for (int i = 0; i < n; i++) {
+            outcomes[i] = outcome(layouts[i], cell, hitLo, hitHi);
+            if (outcomes[i] == MISS)
+                misses++;
+        }
+        long cellLo = BitBoard.lo(cell);
+        long cellHi = BitBoard.hi(cell);
+        // Each outcome's share of the bound, less what the outcomes before it took
+        double limit = (double) bound * n;
+        double sum = misses;
+        if (sum >= limit)
+            return (float) (sum / n);
+        if (misses > 0) {
+            int[] child = new int[misses];
+            int c = 0;
+            for (int i = 0; i < n; i++) {
+                if (outcomes[i] == MISS) {
+                    child[c++] = layouts[i];
+                    outcomes[i] = DONE;
+                }
+            }
+            sum += misses * (double) value(child, misses, hitLo, hitHi, ceil((limit - sum) / misses));
+            if (sum >= limit)
+                return (float) (sum / n);
+        }
+        int[] child = new int[n - misses];
+        for (int i = 0; i < n; i++) {
+            int outcome = outcomes[i];
+            if (outcome == DONE)
+                continue;
+            int c = 0;
+            for (int j = i; j < n; j++) {
+                if (outcomes[j] == outcome) {
+                    child[c++] = layouts[j];
+                    outcomes[j] = DONE;
+                }
+            }
+            sum += c * (double) value(Arrays.copyOf(child, c), c, hitLo | cellLo, hitHi | cellHi,
+                    ceil((limit - sum) / c));
+            if (sum >= limit)
+                break;
+        }
+        return (float) (sum / n);
+    }
+
+    // Rounded up, so a child cut off at its bound always cuts off its parent too
+    private static float ceil(double bound) {
+        float f = (float) bound;
+        return f < bound ? Math.nextUp(f) : f;
+    }
+
+    @SuppressWarnings("serial")
+    private class Shot extends RecursiveTask<Float> {
+        private final int cell;
+        private final int[] layouts;
+        private final int n;
+        private final long hitLo, hitHi;
+        private final float bound;
+
+        Shot(int cell, int[] layouts, int n, long hitLo, long hitHi, float bound) {
+            this.cell = cell;
+            this.layouts = layouts;
+            this.n = n;
+            this.hitLo = hitLo;
+            this.hitHi = hitHi;
+            this.bound = bound;
+        }
+
+        @Override
+        protected Float compute() {
+            return shoot(cell, layouts, n, hitLo, hitHi, bound);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package battleship;
+
+import java.util.SplittableRandom;
+
+// Random legal fleet layouts, uniform over all legal layouts.
+//
+// Each piece draws a placement uniformly from every in-bounds placement of its
+// size and the whole fleet is redrawn as soon as one touches another. Every
+// legal tuple of placements is therefore equally likely, unlike retrying a
+// single piece, which favours layouts that leave more room for later pieces.
+// Identical pieces only permute the tuple, so layouts stay uniform too.
+// RuleSet only rules out fleets too big for the board, so a fleet that barely
+// fits, or cannot be arranged at all, gives up after MAX_ATTEMPTS draws.
+public class FleetGenerator {
+    private static final int MAX_ATTEMPTS = 1_000_000;
+
+    private final RuleSet rules;
+    private final int[] sizes;
+    private final int[] order;
+
+    public FleetGenerator(RuleSet rules) {
+        this.rules = rules;
+        this.sizes = rules.getFleet();
+        // Largest pieces first so conflicts are found early
+        order = new int[sizes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = 1; i < order.length; i++) {
+            for (int j = i; j > 0 && sizes[order[j]] > sizes[order[j - 1]]; j--) {
+                int t = order[j];
+                order[j] = order[j - 1];
+                order[j - 1] = t;
+            }
+        }
+    }
+
+    public static FleetGenerator standard() {
+        return new FleetGenerator(RuleSet.STANDARD);
+    }
+
+    public static Piece[] standardFleet() {
+        return RuleSet.STANDARD.newFleet();
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    // Fills ids (one per piece, in fleet order) with Placements ids. 9x9 only.
+    public void sample(SplittableRandom random, int[] ids) {
+        if (!rules.isStandardBoard())
+            throw new IllegalStateException("Placement ids only exist for the 9x9 board");
+        boolean noTouching = rules.isNoTouching();
+        attempt: for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long shipLo = 0;
+            long shipHi = 0;
+            for (int i : order) {
+                int[] choices = Placements.ofSize(sizes[i]);
+                int id = choices[random.nextInt(choices.length)];
+                long lo = noTouching ? Placements.haloLo(id) : Placements.footLo(id);
+                long hi = noTouching ? Placements.haloHi(id) : Placements.footHi(id);
+                if (((lo & shipLo) | (hi & shipHi)) != 0)
+                    continue attempt;
+                shipLo |= Placements.footLo(id);
+                shipHi |= Placements.footHi(id);
+                ids[i] = id;
+            }
+            return;
+        }
+        throw noLayout();
+    }
+
+    private IllegalStateException noLayout() {
+        return new IllegalStateException("No fleet layout found for " + rules + " in " + MAX_ATTEMPTS + " attempts");
+    }
+
+    // Places the fleet on a player that has no pieces yet.
+    public void fill(Player player, Piece[] fleet, SplittableRandom random) {
+        if (fleet.length != sizes.length)
+            throw new IllegalArgumentException("Fleet does not match the rule set");
+        for (int i = 0; i < fleet.length; i++) {
+            if (fleet[i].getSize() != sizes[i])
+                throw new IllegalArgumentException("Fleet does not match the rule set");
+        }
+        if (rules.isStandardBoard()) {
+            int[] ids = new int[sizes.length];
+            sample(random, ids);
+            for (int i = 0; i < fleet.length; i++) {
+                int cell = Placements.cell(ids[i]);
+                if (!player.placePiece(fleet[i], cell / BitBoard.SIZE, cell % BitBoard.SIZE,
+                        Placements.isHorizontal(ids[i])))
+                    throw new IllegalStateException("Could not place fleet on " + player.getName());
+            }
+        } else {
+            fillLarge(player, fleet, random);
+        }
+    }
+
+    // Same scheme on any board size, with a scratch Board checking each
+    // placement, so the player only sees (and its game only journals) the
+    // fleet that was kept
+    private void fillLarge(Player player, Piece[] fleet, SplittableRandom random) {
+        int rows = rules.getRows();
+        int cols = rules.getCols();
+        Board board = rules.newBoard();
+        boolean placed = false;
+        attempt: for (int attempt = 0; attempt < MAX_ATTEMPTS && !placed; attempt++) {
+            board.clearShips();
+            for (int i : order) {
+                int size = sizes[i];
+                long horizontal = size > cols ? 0 : (long) rows * (cols - size + 1);
+                long vertical = size == 1 || size > rows ? 0 : (long) cols * (rows - size + 1);
+                long pick = random.nextLong(horizontal + vertical);
+                boolean isHorizontal = pick < horizontal;
+                int row;
+                int col;
+                if (isHorizontal) {
+                    row = (int) (pick / (cols - size + 1));
+                    col = (int) (pick % (cols - size + 1));
+                } else {
+                    pick -= horizontal;
+                    row = (int) (pick / cols);
+                    col = (int) (pick % cols);
+                }
+                if (!board.canPlace(size, row, col, isHorizontal, rules.isNoTouching()))
+                    continue attempt;
+                fleet[i].setPosition(row, col, isHorizontal);
+                board.addPiece(fleet[i]);
+            }
+            placed = true;
+        }
+        if (!placed)
+            throw noLayout();
+        for (int i : order) {
+            Piece piece = fleet[i];
+            if (!player.placePiece(piece, piece.getStartRow(), piece.getStartCol(), piece.isHorizontal()))
+                throw new IllegalStateException("Could not place fleet on " + player.getName());
+        }
+    }
+}
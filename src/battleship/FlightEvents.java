@@ -0,0 +1,103 @@
+package battleship;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events for the engine and the UI. They cost next to
+// nothing unless a recording enables them, e.g.
+// java -XX:StartFlightRecording:filename=battleship.jfr,settings=profile ...
+// and are read back with `jfr print --events battleship.Fire battleship.jfr`.
+// Every event is timed from begin() to commit(); set the fields only when
+// shouldCommit() says the event will be written.
+public class FlightEvents {
+    private FlightEvents() {
+    }
+
+    @Name("battleship.Fire")
+    @Label("Fire")
+    @Category({ "Battleship", "Engine" })
+    @StackTrace(false)
+    public static class Fire extends Event {
+        @Label("Row")
+        int row;
+        @Label("Column")
+        int col;
+        @Label("Hit")
+        boolean hit;
+    }
+
+    @Name("battleship.Salvo")
+    @Label("Salvo")
+    @Description("A batch of shots resolved by Game.fireBatch")
+    @Category({ "Battleship", "Engine" })
+    @StackTrace(false)
+    public static class Salvo extends Event {
+        @Label("Shots")
+        int shots;
+        @Label("Hits")
+        int hits;
+        @Label("Sunk")
+        int sunk;
+    }
+
+    @Name("battleship.Placement")
+    @Label("Placement Validation")
+    @Category({ "Battleship", "Engine" })
+    @StackTrace(false)
+    public static class Placement extends Event {
+        @Label("Size")
+        int size;
+        @Label("Row")
+        int row;
+        @Label("Column")
+        int col;
+        @Label("Horizontal")
+        boolean horizontal;
+        @Label("Valid")
+        boolean valid;
+    }
+
+    @Name("battleship.AiDecision")
+    @Label("AI Decision")
+    @Description("A computer player choosing its next shot")
+    @Category({ "Battleship", "AI" })
+    @StackTrace(false)
+    public static class AiDecision extends Event {
+        @Label("Strategy")
+        String strategy;
+        @Label("Cell")
+        int cell;
+    }
+
+    @Name("battleship.TurnSwitch")
+    @Label("Turn Switch")
+    @Description("Handing the boards over to the next player")
+    @Category({ "Battleship", "UI" })
+    @StackTrace(false)
+    public static class TurnSwitch extends Event {
+        @Label("Player")
+        String player;
+    }
+
+    @Name("battleship.Restyle")
+    @Label("Grid Restyle")
+    @Description("Cells of a grid switching style in BoardView.render")
+    @Category({ "Battleship", "UI" })
+    @StackTrace(false)
+    public static class Restyle extends Event {
+        @Label("Cells")
+        int cells;
+    }
+
+    @Name("battleship.Pulse")
+    @Label("Pulse Layout")
+    @Description("CSS and layout pass of a JavaFX pulse, where restyled cells are applied")
+    @Category({ "Battleship", "UI" })
+    @StackTrace(false)
+    public static class Pulse extends Event {
+    }
+}
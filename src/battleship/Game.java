@@ -1,20 +1,87 @@
 package battleship;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The journal of Moves is the authoritative history: the players' boards are
+// the result of applying its first `cursor` entries. Every move can be applied
+// and reverted in constant time, so undo and redo just move the cursor. A
+// GameSnapshot is kept every SNAPSHOT_INTERVAL entries; loading or forking a
+// game restores the nearest one and replays the few entries after it.
+// Snapshots cost more than the moves themselves and only pay off in games that
+// are undone, forked or saved, so none are taken until the first of those;
+// simulated games never take any.
+//
+// A game made by fromSnapshot starts at a position instead of an empty board.
+// That base is a snapshot at position 0, so undo stops there, and forks, saves
+// and loads start from it.
 public class Game {
+    private static final int SNAPSHOT_INTERVAL = 32;
+    private static final int MAGIC = 0x42534732; // "BSG2"
+    private static final int MAGIC_V1 = 0x42534731; // "BSG1", before salvo rules
+    private static final Histogram FIRE_NANOS = Metrics.histogram("game.fire.nanos");
+    private static final Histogram FIRE_BYTES = Metrics.histogram("game.fire.bytes");
+    private static final Histogram SALVO_NANOS = Metrics.histogram("game.salvo.nanos");
+
     private Player player1;
     private Player player2;
     private Player currentPlayer;
     private Player opponent;
     private boolean isSetupPhase;
+    private RuleSet rules;
+    private long[] journal = new long[64];
+    private int size; // entries recorded, including undone ones that can be redone
+    private int cursor; // entries applied
+    private final List<GameSnapshot> snapshots = new ArrayList<>();
+    private boolean replaying;
+    private boolean snapshotting;
+    private GameSnapshot base;
 
     public Game(String name1, String name2) {
-        player1 = new Player(name1);
-        player2 = new Player(name2);
+        this(name1, name2, RuleSet.STANDARD);
+    }
+
+    public Game(String name1, String name2, RuleSet rules) {
+        this.rules = rules;
+        player1 = new Player(name1, rules);
+        player2 = new Player(name2, rules);
+        player1.attach(this, 0);
+        player2.attach(this, 1);
         currentPlayer = player1;
         opponent = player2;
         isSetupPhase = true;
     }
 
+    // A game at the snapshot's position with no history before it, for
+    // positions kept without their moves (see StoredGame.toGame)
+    public static Game fromSnapshot(String name1, String name2, RuleSet rules, GameSnapshot snapshot) {
+        Game game = new Game(name1, name2, rules);
+        game.base = new GameSnapshot(0, snapshot.isFirstPlayerToMove(),
+                new long[][] { snapshot.getFleet(0), snapshot.getFleet(1) },
+                new long[][] { snapshot.getShots(0), snapshot.getShots(1) });
+        game.snapshotting = true;
+        game.snapshots.add(game.base);
+        game.restore(game.base);
+        return game;
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    // Seat 0 moves first
+    public Player getPlayer(int seat) {
+        return seat == 0 ? player1 : player2;
+    }
+
     public Player getCurrentPlayer() {
         return currentPlayer;
     }
@@ -23,23 +90,104 @@ public class Game {
         return opponent;
     }
 
+    // Listens to shots on both players' boards
+    public void addListener(GameListener listener) {
+        player1.addListener(listener);
+        player2.addListener(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        player1.removeListener(listener);
+        player2.removeListener(listener);
+    }
+
     public boolean isSetupPhase() {
         return isSetupPhase;
     }
 
     public void nextTurn() {
+        swapTurn();
+        record(Move.turn());
+    }
+
+    private void swapTurn() {
         Player temp = currentPlayer;
         currentPlayer = opponent;
         opponent = temp;
     }
 
     public boolean fire(int row, int col) {
-        GridCell cell = opponent.getGrid()[row][col];
-        if (cell.isHit()) {
-            return false; // Already hit this cell
+        FlightEvents.Fire event = new FlightEvents.Fire();
+        event.begin();
+        long start = Metrics.start();
+        long allocated = Metrics.allocated();
+        boolean hit = opponent.receiveShot(row, col); // False if already shot or a miss
+        FIRE_BYTES.recordAllocatedSince(allocated);
+        FIRE_NANOS.recordSince(start);
+        if (event.shouldCommit()) {
+            event.row = row;
+            event.col = col;
+            event.hit = hit;
+            event.commit();
         }
-        cell.hit();
-        return cell.hasPiece(); // Return true only if we hit a ship
+        return hit;
+    }
+
+    // Shots the current player fires this turn: one, or under salvo rules
+    // one per ship it has afloat, up to Salvo.MAX_SHOTS
+    public int getShotsPerTurn() {
+        return rules.isSalvo() ? Math.min(currentPlayer.getShipsRemaining(), Salvo.MAX_SHOTS) : 1;
+    }
+
+    // Fires a turn's shots at the opponent, cells given as row * cols + col,
+    // and returns their results packed as a Salvo. A batch with a cell off the
+    // board, already shot or repeated is rejected before any shot lands; once
+    // the opponent's fleet is down the remaining shots are dropped. The caller
+    // moves on with nextTurn after the whole batch, as after fire.
+    public long fireBatch(int[] cells) {
+        return fireBatch(cells, cells.length);
+    }
+
+    // The first count of cells
+    public long fireBatch(int[] cells, int count) {
+        if (count > getShotsPerTurn())
+            throw new IllegalArgumentException(count + " shots, " + getShotsPerTurn() + " allowed");
+        long boardCells = (long) rules.getRows() * rules.getCols();
+        int cols = rules.getCols();
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            if (cell < 0 || cell >= boardCells)
+                throw new IllegalArgumentException("Shot off the board: " + cell);
+            if (opponent.getBoard().isShot(cell / cols, cell % cols))
+                throw new IllegalArgumentException("Already shot: " + cell);
+            for (int j = 0; j < i; j++) {
+                if (cells[j] == cell)
+                    throw new IllegalArgumentException("Shot twice in one salvo: " + cell);
+            }
+        }
+        FlightEvents.Salvo event = new FlightEvents.Salvo();
+        event.begin();
+        long start = Metrics.start();
+        long hits = 0;
+        long sunk = 0;
+        for (int i = 0; i < count && !opponent.allPiecesDestroyed(); i++) {
+            int row = cells[i] / cols;
+            int col = cells[i] % cols;
+            if (!opponent.receiveShot(row, col))
+                continue;
+            hits |= 1L << i;
+            if (opponent.getPieceAt(row, col).isDestroyed())
+                sunk |= 1L << i;
+        }
+        long result = Salvo.of(hits, sunk);
+        SALVO_NANOS.recordSince(start);
+        if (event.shouldCommit()) {
+            event.shots = count;
+            event.hits = Salvo.hits(result);
+            event.sunk = Salvo.sunk(result);
+            event.commit();
+        }
+        return result;
     }
 
     public boolean isGameOver() {
@@ -53,4 +201,270 @@ public class Game {
             return player1.getName();
         return null;
     }
+
+    // Called by the players after each change, and by nextTurn
+    void record(long move) {
+        if (replaying)
+            return;
+        // A new move ends the redo branch and any snapshot taken on it
+        while (!snapshots.isEmpty() && snapshots.get(snapshots.size() - 1).getPosition() > cursor) {
+            snapshots.remove(snapshots.size() - 1);
+        }
+        if (cursor == journal.length)
+            journal = Arrays.copyOf(journal, cursor * 2);
+        journal[cursor++] = move;
+        size = cursor;
+        if (snapshotting && cursor % SNAPSHOT_INTERVAL == 0)
+            snapshots.add(snapshot());
+    }
+
+    // Snapshots from the current position on
+    private void startSnapshots() {
+        if (snapshotting)
+            return;
+        snapshotting = true;
+        if (cursor > 0)
+            snapshots.add(snapshot());
+    }
+
+    public int getPosition() {
+        return cursor;
+    }
+
+    public long getMove(int position) {
+        if (position < 0 || position >= size)
+            throw new IndexOutOfBoundsException("No move " + position);
+        return journal[position];
+    }
+
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+
+    public boolean canRedo() {
+        return cursor < size;
+    }
+
+    // Reverts the last placement, removal or shot together with the turn
+    // changes after it. Returns the reverted move, or Move.NONE.
+    public long undo() {
+        startSnapshots();
+        replaying = true;
+        try {
+            while (cursor > 0) {
+                long move = journal[--cursor];
+                revert(move);
+                if (Move.kind(move) != Move.TURN)
+                    return move;
+            }
+            return Move.NONE;
+        } finally {
+            replaying = false;
+        }
+    }
+
+    // Re-applies what the last undo reverted. Returns the move, or Move.NONE.
+    public long redo() {
+        if (cursor == size)
+            return Move.NONE;
+        replaying = true;
+        try {
+            long move = journal[cursor++];
+            apply(move);
+            while (cursor < size && Move.kind(journal[cursor]) == Move.TURN) {
+                apply(journal[cursor++]);
+            }
+            return move;
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private Player player(long move) {
+        return Move.player(move) == 0 ? player1 : player2;
+    }
+
+    private void apply(long move) {
+        switch (Move.kind(move)) {
+            case Move.SHOT:
+                player(move).receiveShot(Move.row(move), Move.col(move));
+                break;
+            case Move.PLACE:
+                place(move);
+                break;
+            case Move.REMOVE:
+                player(move).removePieceAt(Move.row(move), Move.col(move));
+                break;
+            default:
+                swapTurn();
+        }
+    }
+
+    private void revert(long move) {
+        switch (Move.kind(move)) {
+            case Move.SHOT:
+                player(move).undoShot(Move.row(move), Move.col(move));
+                break;
+            case Move.PLACE:
+                player(move).removePieceAt(Move.row(move), Move.col(move));
+                break;
+            case Move.REMOVE:
+                place(move);
+                break;
+            default:
+                swapTurn();
+        }
+    }
+
+    private void place(long move) {
+        if (!player(move).placePiece(Piece.ofSize(Move.size(move)), Move.row(move), Move.col(move),
+                Move.isHorizontal(move)))
+            throw new IllegalStateException("Journal does not replay: " + Move.toString(move));
+    }
+
+    public GameSnapshot snapshot() {
+        long[][] fleets = new long[2][];
+        long[][] shots = new long[2][];
+        Player[] players = { player1, player2 };
+        for (int p = 0; p < 2; p++) {
+            List<Piece> pieces = players[p].getPieces();
+            fleets[p] = new long[pieces.size()];
+            for (int i = 0; i < fleets[p].length; i++) {
+                fleets[p][i] = Move.place(p, pieces.get(i));
+            }
+            shots[p] = players[p].getBoard().getShotCells();
+        }
+        return new GameSnapshot(cursor, currentPlayer == player1, fleets, shots);
+    }
+
+    // Only on a fresh game, before anything was recorded
+    private void restore(GameSnapshot snapshot) {
+        replaying = true;
+        try {
+            Player[] players = { player1, player2 };
+            for (int p = 0; p < 2; p++) {
+                for (long move : snapshot.getFleet(p)) {
+                    place(move);
+                }
+                for (long cell : snapshot.getShots(p)) {
+                    players[p].receiveShot((int) (cell / rules.getCols()), (int) (cell % rules.getCols()));
+                }
+            }
+            if (!snapshot.isFirstPlayerToMove())
+                swapTurn();
+            cursor = snapshot.getPosition();
+        } finally {
+            replaying = false;
+        }
+    }
+
+    // Applies journal entries up to the position without recording them
+    private void replayTo(int position) {
+        replaying = true;
+        try {
+            while (cursor < position) {
+                apply(journal[cursor++]);
+            }
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private GameSnapshot snapshotBefore(int position) {
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (snapshots.get(i).getPosition() <= position)
+                return snapshots.get(i);
+        }
+        return null;
+    }
+
+    // Independent copy at the current position, for what-if analysis
+    public Game fork() {
+        return forkAt(cursor);
+    }
+
+    // Independent copy as it was (or will be, after redo) at the position
+    public Game forkAt(int position) {
+        if (position < 0 || position > size)
+            throw new IndexOutOfBoundsException("No position " + position);
+        startSnapshots();
+        Game fork = new Game(player1.getName(), player2.getName(), rules);
+        fork.journal = Arrays.copyOf(journal, Math.max(size, 64));
+        fork.size = size;
+        fork.snapshots.addAll(snapshots);
+        fork.snapshotting = true;
+        fork.base = base;
+        GameSnapshot snapshot = snapshotBefore(position);
+        if (snapshot != null)
+            fork.restore(snapshot);
+        fork.replayTo(position);
+        return fork;
+    }
+
+    // Saves the whole journal and the latest snapshot, so a load only replays
+    // the entries recorded since that snapshot. A game with a base saves the
+    // base instead, as nothing before it could be replayed.
+    public void save(Path path) throws IOException {
+        startSnapshots();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(rules.getRows());
+            out.writeInt(rules.getCols());
+            out.writeBoolean(rules.isNoTouching());
+            out.writeBoolean(rules.isSalvo());
+            int[] fleet = rules.getFleet();
+            out.writeInt(fleet.length);
+            for (int pieceSize : fleet) {
+                out.writeInt(pieceSize);
+            }
+            out.writeUTF(player1.getName());
+            out.writeUTF(player2.getName());
+            out.writeInt(size);
+            out.writeInt(cursor);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(journal[i]);
+            }
+            GameSnapshot snapshot = base != null ? base : snapshotBefore(cursor);
+            out.writeBoolean(snapshot != null);
+            if (snapshot != null)
+                snapshot.write(out);
+        }
+    }
+
+    public static Game load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != MAGIC_V1)
+                throw new IOException("Not a saved game: " + path);
+            int rows = in.readInt();
+            int cols = in.readInt();
+            boolean noTouching = in.readBoolean();
+            boolean salvo = magic == MAGIC && in.readBoolean();
+            int[] fleet = new int[in.readInt()];
+            for (int i = 0; i < fleet.length; i++) {
+                fleet[i] = in.readInt();
+            }
+            Game game = new Game(in.readUTF(), in.readUTF(), new RuleSet(rows, cols, fleet, noTouching, salvo));
+            int size = in.readInt();
+            int cursor = in.readInt();
+            if (size < 0 || cursor < 0 || cursor > size)
+                throw new IOException("Corrupt saved game: " + path);
+            game.journal = new long[Math.max(size, 64)];
+            for (int i = 0; i < size; i++) {
+                game.journal[i] = in.readLong();
+            }
+            game.size = size;
+            game.snapshotting = true;
+            if (in.readBoolean()) {
+                GameSnapshot snapshot = GameSnapshot.read(in);
+                // Only a base is ever snapshotted at position 0
+                if (snapshot.getPosition() == 0)
+                    game.base = snapshot;
+                game.snapshots.add(snapshot);
+                game.restore(snapshot);
+            }
+            game.replayTo(cursor);
+            return game;
+        }
+    }
 }
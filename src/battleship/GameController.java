@@ -10,12 +10,19 @@ import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.util.Duration;
 import javafx.event.ActionEvent;
+import javafx.application.Platform;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class GameController {
     private enum Phase {
         DEPLOY_P1, DEPLOY_P2, GAMEPLAY
     }
 
+    // Time the computer player gets for a shot, counted from the human's shot
+    private static final long COMPUTER_BUDGET_MILLIS = 500;
+    private static final Histogram TURN_SWITCH_NANOS = Metrics.histogram("ui.turn-switch.nanos");
+
     private Phase currentPhase = Phase.DEPLOY_P1;
     @FXML
     private GridPane playerGrid;
@@ -28,16 +35,28 @@ public class GameController {
     @FXML
     private Button clearPreviewButton;
     @FXML
+    private Button randomizeButton;
+    @FXML
+    private Button undoButton;
+    @FXML
+    private Button newGameButton;
+    @FXML
     private TextField player1NameField;
     @FXML
     private TextField player2NameField;
     @FXML
+    private CheckBox computerCheck;
+    @FXML
+    private CheckBox salvoCheck;
+    @FXML
     private Button startButton;
     @FXML
     private Label player1Label;
     @FXML
     private Label player2Label;
 
+    private BoardView playerView;
+    private BoardView opponentView;
     private Game game;
     private boolean placingPhase = false;
     private int currentPieceIndex = 0;
@@ -45,17 +64,21 @@ public class GameController {
     private boolean isHorizontal = true;
     private int currentPlacingPlayer = 1;
     private Player[] players;
+    private RuleSet rules = RuleSet.STANDARD;
+    private final FleetGenerator fleetGenerator = new FleetGenerator(rules);
+    private final SplittableRandom random = new SplittableRandom();
+    private String sunkMessage = "";
+    // Player 2's moves when the computer plays it, otherwise null
+    private MovePipeline computer;
+    // Cells aimed at this turn, fired together once the turn's shots are all aimed
+    private final int[] aimed = new int[Salvo.MAX_SHOTS];
+    private int aimedCount;
+    private int computerShotsLeft;
 
     @FXML
     private void clearPreview() {
-        for (Node node : playerGrid.getChildren()) {
-            if (node instanceof Button) {
-                Button btn = (Button) node;
-                if (!btn.getStyle().contains("gray")) {
-                    btn.setStyle("-fx-background-color: lightblue; -fx-border-color: black;");
-                }
-            }
-        }
+        playerView.getModel().clearPreview();
+        playerView.render();
     }
 
     @FXML
@@ -65,78 +88,38 @@ public class GameController {
 
     // Neon preview for ship placement
     private void showNeonPreview(int row, int col) {
-        showNeonPreview(playerGrid, row, col);
+        showNeonPreview(playerView, row, col);
     }
 
-    private void showNeonPreview(GridPane grid, int row, int col) {
+    private void showNeonPreview(BoardView view, int row, int col) {
         if (currentPhase == Phase.GAMEPLAY || currentPieceIndex >= piecesToPlace.length)
             return;
         Piece piece = piecesToPlace[currentPieceIndex];
+        BoardModel model = view.getModel();
         boolean canPlace = true;
         for (int i = 0; i < piece.getSize(); i++) {
             int r = isHorizontal ? row : row + i;
             int c = isHorizontal ? col + i : col;
-            if (r >= 9 || c >= 9) {
-                canPlace = false;
-                break;
-            }
-            Button btn = getButtonAt(grid, r, c);
-            if (btn != null && btn.getStyle().contains("gray")) {
+            if (r >= rules.getRows() || c >= rules.getCols() || model.get(r, c) == CellState.SHIP) {
                 canPlace = false;
                 break;
             }
         }
-        String previewColor = canPlace ? "#39ff14" : "#ff00cc"; // Neon green or neon pink
         for (int i = 0; i < piece.getSize(); i++) {
             int r = isHorizontal ? row : row + i;
             int c = isHorizontal ? col + i : col;
-            if (r < 9 && c < 9) {
-                Button btn = getButtonAt(grid, r, c);
-                if (btn != null && !btn.getStyle().contains("gray")) {
-                    btn.setStyle("-fx-background-color: " + previewColor
-                            + "; -fx-border-color: #fff700; -fx-effect: dropshadow(gaussian, #39ff14, 10, 0.7, 0, 0);");
-                }
+            if (r < rules.getRows() && c < rules.getCols()) {
+                model.preview(r, c, canPlace); // Neon green or neon pink
             }
         }
+        view.render();
     }
 
     @FXML
     private void showPreview(int row, int col) {
         if (!placingPhase || currentPieceIndex >= piecesToPlace.length)
             return;
-
-        Piece piece = piecesToPlace[currentPieceIndex];
-        boolean canPlace = true;
-
-        for (int i = 0; i < piece.getSize(); i++) {
-            int r = isHorizontal ? row : row + i;
-            int c = isHorizontal ? col + i : col;
-
-            if (r >= 9 || c >= 9) {
-                canPlace = false;
-                break;
-            }
-
-            Button btn = getButtonAt(playerGrid, r, c);
-            if (btn != null && btn.getStyle().contains("gray")) {
-                canPlace = false;
-                break;
-            }
-        }
-
-        String previewColor = canPlace ? "lightgreen" : "pink";
-        for (int i = 0; i < piece.getSize(); i++) {
-            int r = isHorizontal ? row : row + i;
-            int c = isHorizontal ? col + i : col;
-
-            if (r < 9 && c < 9) {
-                Button btn = getButtonAt(playerGrid, r, c);
-                if (btn != null && !btn.getStyle().contains("gray")) {
-                    btn.setStyle("-fx-background-color: " + previewColor +
-                            "; -fx-border-color: black; -fx-background-radius: 0; -fx-border-radius: 0;");
-                }
-            }
-        }
+        showNeonPreview(playerView, row, col);
     }
 
     @FXML
@@ -145,13 +128,20 @@ public class GameController {
         opponentGrid.setDisable(true);
         rotateButton.setDisable(true);
         clearPreviewButton.setDisable(true);
-        setupGrid(playerGrid, true);
-        setupGrid(opponentGrid, false);
+        randomizeButton.setDisable(true);
+        undoButton.setDisable(true);
+        newGameButton.setDisable(true);
+        playerView = new BoardView(playerGrid, rules.getRows(), rules.getCols());
+        opponentView = new BoardView(opponentGrid, rules.getRows(), rules.getCols());
+        setupGrid(playerView, true);
+        setupGrid(opponentView, false);
     }
 
     @FXML
     private void startGame() {
         String p1Name = player1NameField.getText().trim();
+        if (computerCheck.isSelected() && player2NameField.getText().trim().isEmpty())
+            player2NameField.setText("Computer");
         String p2Name = player2NameField.getText().trim();
 
         if (p1Name.isEmpty() || p2Name.isEmpty()) {
@@ -159,13 +149,11 @@ public class GameController {
             return;
         }
 
-        game = new Game(p1Name, p2Name);
+        rules = salvoCheck.isSelected() ? RuleSet.SALVO : RuleSet.STANDARD;
+        game = new Game(p1Name, p2Name, rules);
         players = new Player[] { game.getCurrentPlayer(), game.getOpponent() };
-        piecesToPlace = new Piece[] {
-                new Battleship(),
-                new Destroyer(), new Destroyer(),
-                new Submarine(), new Submarine(), new Submarine()
-        };
+        game.addListener(this::onGameEvent);
+        piecesToPlace = rules.newFleet();
 
         player1Label.setText(p1Name + "'s Grid");
         player2Label.setText(p2Name + "'s Grid");
@@ -174,11 +162,15 @@ public class GameController {
         playerGrid.setDisable(false);
         rotateButton.setDisable(false);
         clearPreviewButton.setDisable(false);
+        randomizeButton.setDisable(false);
         player1NameField.setDisable(true);
         player2NameField.setDisable(true);
+        computerCheck.setDisable(true);
+        salvoCheck.setDisable(true);
         startButton.setDisable(true);
+        newGameButton.setDisable(false);
 
-        statusLabel.setText(p1Name + ": Place your Battleship (size 3)");
+        statusLabel.setText(p1Name + ": Place your " + nextPieceLabel());
 
         rotateButton.setOnAction(e -> {
             isHorizontal = !isHorizontal;
@@ -188,203 +180,145 @@ public class GameController {
         });
     }
 
-    private void setupGrid(GridPane grid, boolean isPlayer) {
-        grid.getChildren().clear();
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                javafx.scene.control.Button btn = new javafx.scene.control.Button();
-                btn.setPrefSize(30, 30);
-                btn.setStyle("-fx-background-color: lightblue; -fx-border-color: black;");
-                btn.setUserData(new int[] { row, col });
-                if (isPlayer) {
-                    btn.setOnAction(e -> handlePlayerGridClick(btn));
-                } else {
-                    btn.setOnAction(e -> handleOpponentGridClick(btn));
-                }
-                grid.add(btn, col, row);
-            }
-        }
+    // Clears the board; Player 1's takes deployment clicks, Player 2's none
+    // until its own deployment
+    private void setupGrid(BoardView view, boolean isPlayer) {
+        view.getModel().fill(CellState.WATER);
+        view.render();
+        view.setOnCellClicked(isPlayer ? this::handlePlayerGridClick : null);
     }
 
-    private void handlePlayerGridClick(javafx.scene.control.Button btn) {
+    private void handlePlayerGridClick(int row, int col) {
         if (currentPhase != Phase.DEPLOY_P1)
             return;
-        int[] pos = (int[]) btn.getUserData();
         Piece piece = piecesToPlace[currentPieceIndex];
         Player placingPlayer = players[0];
-        boolean placed = placingPlayer.placePiece(piece, pos[0], pos[1], isHorizontal);
+        boolean placed = placingPlayer.placePiece(piece, row, col, isHorizontal);
         if (placed) {
             // Set ship color: red for Player 1
-            for (int i = 0; i < piece.getSize(); i++) {
-                int r = isHorizontal ? pos[0] : pos[0] + i;
-                int c = isHorizontal ? pos[1] + i : pos[1];
-                Button b = getButtonAt(playerGrid, r, c);
-                b.setStyle("-fx-background-color: #ff4444; -fx-border-color: black;");
-            }
+            showShip(playerView, piece, row, col);
             currentPieceIndex++;
             if (currentPieceIndex < piecesToPlace.length) {
-                String name = pieceName(piecesToPlace[currentPieceIndex]);
-                statusLabel.setText(player1NameField.getText() + ": Place your " + name + " (size "
-                        + piecesToPlace[currentPieceIndex].getSize() + ")");
+                statusLabel.setText(player1NameField.getText() + ": Place your " + nextPieceLabel());
             } else {
-                // Hide Player 1 ships for Player 2
-                for (Node node : playerGrid.getChildren()) {
-                    if (node instanceof Button) {
-                        ((Button) node).setStyle("-fx-background-color: lightblue; -fx-border-color: black;");
-                    }
-                }
-                currentPhase = Phase.DEPLOY_P2;
-                currentPieceIndex = 0;
-                piecesToPlace = new Piece[] {
-                        new Battleship(),
-                        new Destroyer(), new Destroyer(),
-                        new Submarine(), new Submarine(), new Submarine()
-                };
-                playerGrid.setDisable(true);
-                opponentGrid.setDisable(false);
-                // Set event handlers for opponentGrid for ship placement
-                for (Node node : opponentGrid.getChildren()) {
-                    if (node instanceof Button) {
-                        ((Button) node).setOnAction(e -> handlePlayer2GridClick((Button) node));
-                    }
-                }
-                statusLabel.setText(player2NameField.getText() + ": Place your Battleship (size 3)");
-                updateShipPreview();
+                finishPlayer1Deployment();
             }
         } else {
             statusLabel.setText("Invalid placement. Try again.");
         }
     }
 
-    private void handleOpponentGridClick(Button btn) {
-        if (placingPhase || game.isGameOver() || btn.getStyle().contains("hit") || btn.getStyle().contains("miss"))
-            return;
-
-        int[] pos = (int[]) btn.getUserData();
-        boolean hit = game.fire(pos[0], pos[1]);
-
-        Player defender = game.getOpponent();
-        GridCell cell = defender.getGrid()[pos[0]][pos[1]];
-        if (hit) {
-            btn.setText("");
-            if (cell.getPiece() instanceof Battleship) {
-                btn.setStyle(
-                        "-fx-background-color: #ff4444; -fx-border-color: black; -fx-background-radius: 0; -fx-border-radius: 0; hit");
-            } else {
-                btn.setStyle(
-                        "-fx-background-color: #ffffff; -fx-border-color: black; -fx-background-radius: 0; -fx-border-radius: 0; hit");
-            }
-            playHitAnimation(btn);
-            statusLabel.setText("Hit! " +
-                    (game.getCurrentPlayer() == players[0] ? player2NameField.getText() : player1NameField.getText()) +
-                    "'s turn.");
-        } else {
-            btn.setText("");
-            btn.setStyle(
-                    "-fx-background-color: #ffffff; -fx-border-color: black; -fx-background-radius: 0; -fx-border-radius: 0; miss");
-            statusLabel.setText("Miss! " +
-                    (game.getCurrentPlayer() == players[0] ? player2NameField.getText() : player1NameField.getText()) +
-                    "'s turn.");
-        }
-
-        if (game.isGameOver()) {
-            gameOver();
-        } else {
-            game.nextTurn();
-            switchPlayerView();
+    private void showShip(BoardView view, Piece piece, int row, int col) {
+        for (int i = 0; i < piece.getSize(); i++) {
+            int r = isHorizontal ? row : row + i;
+            int c = isHorizontal ? col + i : col;
+            view.getModel().set(r, c, CellState.SHIP);
         }
+        view.render();
     }
 
-    private void playHitAnimation(Button btn) {
-        btn.setScaleX(1.2);
-        btn.setScaleY(1.2);
-        javafx.animation.Timeline timeline = new javafx.animation.Timeline(
-                new javafx.animation.KeyFrame(javafx.util.Duration.millis(100),
-                        new javafx.animation.KeyValue(btn.scaleXProperty(), 1),
-                        new javafx.animation.KeyValue(btn.scaleYProperty(), 1)));
-        timeline.play();
+    private void finishPlayer1Deployment() {
+        if (computerCheck.isSelected()) {
+            deployComputer();
+            return;
+        }
+        // Hide Player 1 ships for Player 2
+        playerView.getModel().fill(CellState.WATER);
+        playerView.render();
+        currentPhase = Phase.DEPLOY_P2;
+        currentPieceIndex = 0;
+        piecesToPlace = rules.newFleet();
+        playerGrid.setDisable(true);
+        opponentGrid.setDisable(false);
+        // Route opponentGrid clicks to ship placement
+        opponentView.setOnCellClicked(this::handlePlayer2GridClick);
+        statusLabel.setText(player2NameField.getText() + ": Place your " + nextPieceLabel());
+        updateShipPreview();
     }
 
-    private void switchPlayerView() {
-        // Hide both grids briefly
-        playerGrid.setVisible(false);
-        opponentGrid.setVisible(false);
-
-        // Show appropriate grid after a short delay
-        javafx.application.Platform.runLater(() -> {
-            playerGrid.setVisible(true);
-            opponentGrid.setVisible(true);
-
-            if (game.getCurrentPlayer() == players[0]) {
-                playerGrid.toFront();
-                player1Label.toFront();
-                statusLabel.setText(player1NameField.getText() + "'s turn to fire!");
-            } else {
-                opponentGrid.toFront();
-                player2Label.toFront();
-                statusLabel.setText(player2NameField.getText() + "'s turn to fire!");
-            }
-        });
+    // The computer deploys at random; Player 1's ships stay in view
+    private void deployComputer() {
+        currentPhase = Phase.DEPLOY_P2;
+        piecesToPlace = rules.newFleet();
+        fleetGenerator.fill(players[1], piecesToPlace, random);
+        currentPieceIndex = piecesToPlace.length;
+        computer = new MovePipeline(new HeatmapStrategy(), rules, random, COMPUTER_BUDGET_MILLIS,
+                Platform::runLater);
+        finishPlayer2Deployment();
     }
 
-    private void gameOver() {
-        // Clear the screen
-        VBox parent = (VBox) statusLabel.getParent();
-        parent.getChildren().clear();
-
-        String winner = game.getWinner();
-        String winnerText;
-        if (winner.equals(player1NameField.getText())) {
-            winnerText = "Player 1 (" + winner + ") wins!";
+    @FXML
+    private void randomizeFleet() {
+        boolean firstPlayer = currentPhase == Phase.DEPLOY_P1;
+        if (!firstPlayer && currentPhase != Phase.DEPLOY_P2)
+            return;
+        Player placingPlayer = firstPlayer ? players[0] : players[1];
+        // Start over if some pieces were already placed by hand
+        placingPlayer.clearPieces();
+        fleetGenerator.fill(placingPlayer, piecesToPlace, random);
+        currentPieceIndex = piecesToPlace.length;
+        if (firstPlayer) {
+            finishPlayer1Deployment();
         } else {
-            winnerText = "Player 2 (" + winner + ") wins!";
+            finishPlayer2Deployment();
         }
+    }
 
-        Label winnerLabel = new Label(winnerText);
-        winnerLabel.setStyle(
-                "-fx-font-size: 48px; -fx-font-family: 'Brush Script MT', cursive; -fx-text-fill: white; -fx-background-color: linear-gradient(to bottom right, #39ff14, #228B22); -fx-padding: 50px; -fx-alignment: center; -fx-border-color: #006400; -fx-border-width: 5px; -fx-border-radius: 30px; -fx-background-radius: 30px; -fx-effect: dropshadow(gaussian, #006400, 20, 0.7, 0, 0);");
-        winnerLabel.setMaxWidth(Double.MAX_VALUE);
-        winnerLabel.setAlignment(javafx.geometry.Pos.CENTER);
-
-        parent.getChildren().add(winnerLabel);
-
-        Button playAgainBtn = new Button("Play Again");
-        playAgainBtn.setStyle(
-                "-fx-font-size: 20px; -fx-font-weight: bold; -fx-background-color: #fff700; -fx-text-fill: #222; -fx-padding: 10px 30px; -fx-background-radius: 10px; -fx-border-radius: 10px;");
-        playAgainBtn.setOnAction(e -> resetGame());
-        parent.getChildren().add(playAgainBtn);
+    // Abandons the game, finished or not, and goes back to entering names
+    @FXML
+    private void newGame() {
+        resetGame();
     }
 
     private void resetGame() {
         player1NameField.setDisable(false);
         player2NameField.setDisable(false);
+        computerCheck.setDisable(false);
+        salvoCheck.setDisable(false);
         startButton.setDisable(false);
         playerGrid.setDisable(true);
         opponentGrid.setDisable(true);
         rotateButton.setDisable(true);
         clearPreviewButton.setDisable(true);
+        randomizeButton.setDisable(true);
+        undoButton.setDisable(true);
+        newGameButton.setDisable(true);
 
-        setupGrid(playerGrid, true);
-        setupGrid(opponentGrid, false);
+        setupGrid(playerView, true);
+        setupGrid(opponentView, false);
 
+        if (computer != null) {
+            // Whatever the computer is still thinking about is never played
+            computer.cancel();
+            computer = null;
+        }
+        currentPhase = Phase.DEPLOY_P1;
         currentPieceIndex = 0;
         currentPlacingPlayer = 1;
         isHorizontal = true;
         placingPhase = false;
+        aimedCount = 0;
+        sunkMessage = "";
 
         statusLabel.setText("Enter player names and click Start Game");
-
-        VBox parent = (VBox) statusLabel.getParent();
-        parent.getChildren().remove(parent.getChildren().size() - 1);
     }
 
-    private javafx.scene.control.Button getButtonAt(GridPane grid, int row, int col) {
-        for (javafx.scene.Node node : grid.getChildren()) {
-            if (GridPane.getRowIndex(node) == row && GridPane.getColumnIndex(node) == col) {
-                return (javafx.scene.control.Button) node;
-            }
+    private void onGameEvent(GameEvent event) {
+        if (event.getType() == GameEvent.Type.SUNK) {
+            // A salvo may sink several
+            sunkMessage += event.getTarget().getName() + "'s " + pieceName(event.getPiece()) + " sunk! ";
         }
-        return null;
+    }
+
+    private String takeSunkMessage() {
+        String message = sunkMessage;
+        sunkMessage = "";
+        return message;
+    }
+
+    private String nextPieceLabel() {
+        Piece piece = piecesToPlace[currentPieceIndex];
+        return pieceName(piece) + " (size " + piece.getSize() + ")";
     }
 
     private String pieceName(Piece piece) {
@@ -398,171 +332,231 @@ public class GameController {
     }
 
     // Add this new method for Player 2 placement
-    private void handlePlayer2GridClick(Button btn) {
+    private void handlePlayer2GridClick(int row, int col) {
         if (currentPhase != Phase.DEPLOY_P2)
             return;
-        int[] pos = (int[]) btn.getUserData();
         Piece piece = piecesToPlace[currentPieceIndex];
         Player placingPlayer = players[1];
-        boolean placed = placingPlayer.placePiece(piece, pos[0], pos[1], isHorizontal);
+        boolean placed = placingPlayer.placePiece(piece, row, col, isHorizontal);
         if (placed) {
             // Set ship color: red for Player 2 (same logic as Player 1)
-            for (int i = 0; i < piece.getSize(); i++) {
-                int r = isHorizontal ? pos[0] : pos[0] + i;
-                int c = isHorizontal ? pos[1] + i : pos[1];
-                Button b = getButtonAt(opponentGrid, r, c);
-                if (b != null) {
-                    b.setStyle("-fx-background-color: #ff4444; -fx-border-color: black;");
-                }
-            }
+            showShip(opponentView, piece, row, col);
             currentPieceIndex++;
             if (currentPieceIndex < piecesToPlace.length) {
-                String name = pieceName(piecesToPlace[currentPieceIndex]);
-                statusLabel.setText(player2NameField.getText() + ": Place your " + name + " (size "
-                        + piecesToPlace[currentPieceIndex].getSize() + ")");
+                statusLabel.setText(player2NameField.getText() + ": Place your " + nextPieceLabel());
                 updateShipPreview();
             } else {
-                // Hide Player 2 ships for Player 1
-                for (Node node : opponentGrid.getChildren()) {
-                    if (node instanceof Button) {
-                        ((Button) node).setStyle("-fx-background-color: lightblue; -fx-border-color: black;");
-                    }
-                }
-                currentPhase = Phase.GAMEPLAY;
-                opponentGrid.setDisable(true);
-                playerGrid.setDisable(true);
-                statusLabel.setText("All pieces placed! " + player1NameField.getText() + "'s turn to attack!");
-                enableAttackPhase();
+                finishPlayer2Deployment();
             }
         } else {
             statusLabel.setText("Invalid placement. Try again.");
         }
     }
 
+    private void finishPlayer2Deployment() {
+        // Hide Player 2 ships for Player 1
+        opponentView.getModel().fill(CellState.WATER);
+        opponentView.render();
+        currentPhase = Phase.GAMEPLAY;
+        opponentGrid.setDisable(true);
+        playerGrid.setDisable(true);
+        randomizeButton.setDisable(true);
+        statusLabel.setText("All pieces placed! " + player1NameField.getText() + "'s turn to attack!");
+        enableAttackPhase();
+    }
+
     // Neon preview for Player 2 grid
     private void showNeonPreviewOpponent(int row, int col) {
         if (!placingPhase || currentPieceIndex >= piecesToPlace.length)
             return;
-        Piece piece = piecesToPlace[currentPieceIndex];
-        boolean canPlace = true;
-        for (int i = 0; i < piece.getSize(); i++) {
-            int r = isHorizontal ? row : row + i;
-            int c = isHorizontal ? col + i : col;
-            if (r >= 9 || c >= 9) {
-                canPlace = false;
-                break;
-            }
-            Button btn = getButtonAt(opponentGrid, r, c);
-            if (btn != null && btn.getStyle().contains("gray")) {
-                canPlace = false;
-                break;
-            }
-        }
-        String previewColor = canPlace ? "#39ff14" : "#ff00cc";
-        for (int i = 0; i < piece.getSize(); i++) {
-            int r = isHorizontal ? row : row + i;
-            int c = isHorizontal ? col + i : col;
-            if (r < 9 && c < 9) {
-                Button btn = getButtonAt(opponentGrid, r, c);
-                if (btn != null && !btn.getStyle().contains("gray")) {
-                    btn.setStyle("-fx-background-color: " + previewColor
-                            + "; -fx-border-color: #fff700; -fx-effect: dropshadow(gaussian, #39ff14, 10, 0.7, 0, 0);");
-                }
-            }
-        }
+        showNeonPreview(opponentView, row, col);
     }
 
     private void clearPreviewOpponent() {
-        for (Node node : opponentGrid.getChildren()) {
-            if (node instanceof Button) {
-                Button btn = (Button) node;
-                if (!btn.getStyle().contains("gray")) {
-                    btn.setStyle("-fx-background-color: lightblue; -fx-border-color: black;");
-                }
-            }
-        }
+        opponentView.getModel().clearPreview();
+        opponentView.render();
     }
 
     // Add this method for attack phase
     private void enableAttackPhase() {
         playerGrid.setDisable(true);
         opponentGrid.setDisable(false);
-        for (Node node : opponentGrid.getChildren()) {
-            if (node instanceof Button) {
-                Button btn = (Button) node;
-                btn.setOnAction(e -> handleAttack(btn));
-            }
+        // Each grid is only enabled on the turn it is the target
+        playerView.setOnCellClicked(this::handleAttack);
+        opponentView.setOnCellClicked(this::handleAttack);
+        if (computer != null) {
+            // Shots are not taken back from the computer; it thinks while Player 1 aims
+            computer.prefetch();
+        } else {
+            undoButton.setDisable(false);
         }
     }
 
-    private void handleAttack(Button btn) {
+    // Takes back the last shot (e.g. a misclick) and gives the turn back to its
+    // shooter; under salvo rules the whole salvo is taken back
+    @FXML
+    private void undoShot() {
+        if (currentPhase != Phase.GAMEPLAY || game.isGameOver() || !game.canUndo())
+            return;
+        long move = game.undo();
+        if (Move.kind(move) != Move.SHOT) {
+            // Deployment is not undone from the attack phase
+            game.redo();
+            return;
+        }
+        clearAim();
+        showUndone(move);
+        // The shots of a salvo sit between two turn changes
+        while (rules.isSalvo() && game.canUndo() && Move.kind(game.getMove(game.getPosition() - 1)) == Move.SHOT) {
+            showUndone(game.undo());
+        }
+        swapAttackGrids();
+    }
+
+    private void showUndone(long move) {
+        BoardView targetView = Move.player(move) == 1 ? opponentView : playerView;
+        targetView.getModel().set(Move.row(move), Move.col(move), CellState.WATER);
+        targetView.render();
+    }
+
+    // Aims at the cell; the turn's shots are fired together once all are aimed
+    private void handleAttack(int row, int col) {
         if (game.isGameOver())
             return;
-        int[] pos = (int[]) btn.getUserData();
         Player defender;
-        GridCell cell;
+        BoardView targetView;
         if (game.getCurrentPlayer() == players[0]) {
             defender = players[1];
-            cell = defender.getGrid()[pos[0]][pos[1]];
+            targetView = opponentView;
         } else {
             defender = players[0];
-            cell = defender.getGrid()[pos[0]][pos[1]];
+            targetView = playerView;
         }
-        if (cell.isHit())
+        int cell = row * rules.getCols() + col;
+        if (defender.getBoard().isShot(row, col) || isAimed(cell))
             return;
-        cell.hit();
-        Button targetBtn;
-        if (game.getCurrentPlayer() == players[0]) {
-            targetBtn = getButtonAt(opponentGrid, pos[0], pos[1]);
-        } else {
-            targetBtn = getButtonAt(playerGrid, pos[0], pos[1]);
+        aimed[aimedCount++] = cell;
+        int shots = shotsThisTurn();
+        if (aimedCount < shots) {
+            targetView.getModel().preview(row, col, true);
+            targetView.render();
+            statusLabel.setText("Aimed " + aimedCount + " of " + shots + " shots.");
+            return;
+        }
+        fireAimed(targetView, true);
+    }
+
+    private boolean isAimed(int cell) {
+        for (int i = 0; i < aimedCount; i++) {
+            if (aimed[i] == cell)
+                return true;
+        }
+        return false;
+    }
+
+    private void clearAim() {
+        aimedCount = 0;
+        playerView.getModel().clearPreview();
+        opponentView.getModel().clearPreview();
+        playerView.render();
+        opponentView.render();
+    }
+
+    // All of the turn's shots, or every cell left when there are fewer
+    private int shotsThisTurn() {
+        int shots = game.getShotsPerTurn();
+        if (shots == 1)
+            return 1;
+        long open = (long) rules.getRows() * rules.getCols() - game.getOpponent().getBoard().getShotCells().length;
+        return (int) Math.min(shots, open);
+    }
+
+    // Resolves the aimed shots in one Game.fireBatch; the turn passes only
+    // after the whole batch, and only if endTurn is set
+    private void fireAimed(BoardView targetView, boolean endTurn) {
+        int[] cells = Arrays.copyOf(aimed, aimedCount);
+        aimedCount = 0;
+        long result = game.fireBatch(cells);
+        Board board = game.getOpponent().getBoard();
+        targetView.getModel().clearPreview();
+        for (int i = 0; i < cells.length; i++) {
+            int row = cells[i] / rules.getCols();
+            int col = cells[i] % rules.getCols();
+            // Shots left over when the fleet went down were never fired
+            if (board.isShot(row, col))
+                targetView.getModel().set(row, col, Salvo.isHit(result, i) ? CellState.HIT : CellState.MISS);
         }
-        if (cell.hasPiece()) {
-            targetBtn.setText("");
-            targetBtn.setStyle("-fx-background-color: #ff4444; -fx-border-color: black; -fx-background-radius: 50;");
-            statusLabel.setText("Hit! "
-                    + (game.getCurrentPlayer() == players[0] ? player2NameField.getText() : player1NameField.getText())
-                    + "'s turn.");
+        targetView.render();
+        String next = !endTurn ? ""
+                : (game.getCurrentPlayer() == players[0] ? player2NameField.getText() : player1NameField.getText())
+                        + "'s turn.";
+        if (cells.length == 1) {
+            statusLabel.setText(Salvo.isHit(result, 0) ? "Hit! " + takeSunkMessage() + next : "Miss! " + next);
         } else {
-            targetBtn.setText("");
-            targetBtn.setStyle("-fx-background-color: #ffffff; -fx-border-color: black; -fx-background-radius: 50;");
-            statusLabel.setText("Miss! "
-                    + (game.getCurrentPlayer() == players[0] ? player2NameField.getText() : player1NameField.getText())
-                    + "'s turn.");
+            statusLabel.setText(Salvo.hits(result) + " of " + cells.length + " shots hit! " + takeSunkMessage()
+                    + next);
         }
         if (game.isGameOver()) {
             statusLabel.setText("Game Over! " + game.getWinner() + " wins!");
             playerGrid.setDisable(true);
             opponentGrid.setDisable(true);
-        } else {
+            undoButton.setDisable(true);
+            if (computer != null)
+                computer.cancel();
+        } else if (endTurn) {
             game.nextTurn();
             swapAttackGrids();
         }
     }
 
+    // Handlers stay wired from enableAttackPhase; only the enabled grid changes
     private void swapAttackGrids() {
+        FlightEvents.TurnSwitch event = new FlightEvents.TurnSwitch();
+        event.begin();
+        long start = Metrics.start();
+        int shots = shotsThisTurn();
+        String volley = shots > 1 ? " Fire " + shots + " shots." : "";
         if (game.getCurrentPlayer() == players[0]) {
             playerGrid.setDisable(true);
             opponentGrid.setDisable(false);
-            statusLabel.setText(player1NameField.getText() + "'s turn to attack!");
-            // Set event handlers for opponentGrid
-            for (Node node : opponentGrid.getChildren()) {
-                if (node instanceof Button) {
-                    Button btn = (Button) node;
-                    btn.setOnAction(e -> handleAttack(btn));
-                }
-            }
+            statusLabel.setText(player1NameField.getText() + "'s turn to attack!" + volley);
+        } else if (computer != null) {
+            playerGrid.setDisable(true);
+            opponentGrid.setDisable(true);
+            statusLabel.setText(player2NameField.getText() + " is aiming...");
+            computerShotsLeft = shots;
+            computer.request(this::computerShot);
         } else {
             playerGrid.setDisable(false);
             opponentGrid.setDisable(true);
-            statusLabel.setText(player2NameField.getText() + "'s turn to attack!");
-            // Set event handlers for playerGrid
-            for (Node node : playerGrid.getChildren()) {
-                if (node instanceof Button) {
-                    Button btn = (Button) node;
-                    btn.setOnAction(e -> handleAttack(btn));
-                }
-            }
+            statusLabel.setText(player2NameField.getText() + "'s turn to attack!" + volley);
+        }
+        TURN_SWITCH_NANOS.recordSince(start);
+        if (event.shouldCommit()) {
+            event.player = game.getCurrentPlayer().getName();
+            event.commit();
+        }
+    }
+
+    // Delivered on the FX thread by the pipeline once the computer has decided.
+    // The strategies aim one shot at a time, so under salvo rules the computer
+    // fires its salvo as batches of one and sees each result before the next.
+    private void computerShot(int cell) {
+        int row = cell / BitBoard.SIZE;
+        int col = cell % BitBoard.SIZE;
+        MovePipeline pipeline = computer;
+        aimed[0] = cell;
+        aimedCount = 1;
+        boolean last = --computerShotsLeft == 0;
+        fireAimed(playerView, last);
+        Piece piece = players[0].getPieceAt(row, col);
+        pipeline.shotResult(cell, piece != null, piece != null && piece.isDestroyed() ? piece : null);
+        if (game.isGameOver())
+            return;
+        if (last) {
+            pipeline.prefetch();
+        } else {
+            pipeline.request(this::computerShot);
         }
     }
 }
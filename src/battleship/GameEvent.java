@@ -0,0 +1,45 @@
+package battleship;
+
+public class GameEvent {
+    public enum Type {
+        HIT, MISS, SUNK, FLEET_DESTROYED,
+        // Deployment on the target's own board
+        PLACED, FLEET_CLEARED
+    }
+
+    private final Type type;
+    private final Player target;
+    private final int row;
+    private final int col;
+    private final Piece piece;
+
+    public GameEvent(Type type, Player target, int row, int col, Piece piece) {
+        this.type = type;
+        this.target = target;
+        this.row = row;
+        this.col = col;
+        this.piece = piece;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The player whose board was shot at (or placed on)
+    public Player getTarget() {
+        return target;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    // The piece that was placed, hit or sunk; null for a miss or a cleared fleet
+    public Piece getPiece() {
+        return piece;
+    }
+}
@@ -0,0 +1,5 @@
+package battleship;
+
+public interface GameListener {
+    void onGameEvent(GameEvent event);
+}
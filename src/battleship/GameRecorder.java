@@ -0,0 +1,77 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Encodes one Game for a MoveLog as its events arrive and appends it when a
+// fleet is destroyed. Placements are held per player until the first shot, so
+// a cleared and re-placed fleet only logs its final layout.
+public class GameRecorder implements GameListener {
+    private static final int MAX_PIECES = 64;
+
+    private final MoveLog log;
+    private final Player[] players;
+    private final byte[][] placements = new byte[2][2 * MAX_PIECES];
+    private final int[] placementLength = new int[2];
+    private final byte[] bytes = new byte[4 + 4 * MAX_PIECES + 2 * BitBoard.CELLS];
+    private int length;
+    private boolean finished;
+
+    // Attach before the first move; the player to move first is player 0
+    public GameRecorder(Game game, MoveLog log) {
+        if (!game.getRules().isStandardBoard())
+            throw new IllegalArgumentException("Move logs only hold 9x9 games");
+        if (game.getRules().getFleetSize() > MAX_PIECES)
+            throw new IllegalArgumentException("Fleet too large for a move log: " + game.getRules());
+        this.log = log;
+        players = new Player[] { game.getCurrentPlayer(), game.getOpponent() };
+        bytes[length++] = (byte) MoveLog.GAME_START;
+        game.addListener(this);
+    }
+
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (finished)
+            return;
+        int player = event.getTarget() == players[0] ? 0 : 1;
+        switch (event.getType()) {
+            case PLACED:
+                Piece piece = event.getPiece();
+                byte[] own = placements[player];
+                own[placementLength[player]++] = (byte) (MoveLog.PLACEMENT
+                        + BitBoard.index(event.getRow(), event.getCol()));
+                own[placementLength[player]++] = (byte) (player << 7 | (piece.isHorizontal() ? 1 << 6 : 0)
+                        | piece.getSize());
+                break;
+            case FLEET_CLEARED:
+                placementLength[player] = 0;
+                break;
+            case HIT:
+            case MISS:
+                if (placementLength[0] + placementLength[1] > 0)
+                    writePlacements();
+                bytes[length++] = (byte) (player * BitBoard.CELLS + BitBoard.index(event.getRow(), event.getCol()));
+                break;
+            case FLEET_DESTROYED:
+                bytes[length++] = (byte) MoveLog.GAME_END;
+                bytes[length++] = (byte) (1 - player);
+                finished = true;
+                try {
+                    log.append(bytes, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void writePlacements() {
+        for (int player = 0; player < 2; player++) {
+            System.arraycopy(placements[player], 0, bytes, length, placementLength[player]);
+            length += placementLength[player];
+            placementLength[player] = 0;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package battleship;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Hosts Games over TCP (see Protocol). One acceptor thread hands sockets round
+// robin to a few reactor threads, each running a Selector over its share of the
+// connections. Clients are paired in the order they JOIN; each pair gets a
+// Match, which serializes the requests of its two seats.
+public class GameServer {
+    private final RuleSet rules;
+    private final FleetGenerator fleetGenerator;
+    private final ServerSocketChannel acceptor;
+    private final Reactor[] reactors;
+    private final Object lobbyLock = new Object();
+    private Connection waiting;
+    private volatile MoveLog log;
+    private volatile boolean running = true;
+
+    public GameServer(int port, int threads, RuleSet rules) throws IOException {
+        if (rules.getFleetSize() > 100)
+            throw new IllegalArgumentException("Fleet does not fit a MATCHED frame: " + rules);
+        this.rules = rules;
+        this.fleetGenerator = new FleetGenerator(rules);
+        acceptor = ServerSocketChannel.open();
+        acceptor.bind(new InetSocketAddress(port), 4096);
+        reactors = new Reactor[threads];
+        for (int i = 0; i < threads; i++) {
+            reactors[i] = new Reactor(i);
+        }
+    }
+
+    // Records every match from now on
+    public void setLog(MoveLog log) {
+        this.log = log;
+    }
+
+    public int getPort() {
+        return acceptor.socket().getLocalPort();
+    }
+
+    public void start() {
+        for (Reactor reactor : reactors) {
+            reactor.thread.start();
+        }
+        Thread thread = new Thread(this::acceptLoop, "server-accept");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            acceptor.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        for (Reactor reactor : reactors) {
+            reactor.selector.wakeup();
+        }
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = acceptor.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Reactor reactor = reactors[next];
+                next = (next + 1) % reactors.length;
+                reactor.execute(() -> reactor.register(channel));
+            } catch (IOException e) {
+                if (!running)
+                    return;
+                // Usually out of file descriptors; give closing sockets time to free some
+                System.err.println("Accept failed: " + e);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Called on the connection's reactor thread for each complete frame
+    void handle(Connection connection, byte type, ByteBuffer in, int payload) {
+        Match match = connection.getMatch();
+        switch (type) {
+            case Protocol.JOIN:
+                String name = match != null || payload == 0 || payload > Protocol.MAX_NAME ? null
+                        : Protocol.getName(in, payload);
+                if (name == null) {
+                    connection.send(Protocol.ERROR, Protocol.BAD_REQUEST);
+                } else {
+                    connection.setName(name);
+                    join(connection);
+                }
+                break;
+            case Protocol.PLACE:
+                if (match == null || payload != 5) {
+                    connection.send(Protocol.ERROR, Protocol.BAD_REQUEST);
+                } else {
+                    int row = Protocol.getCoord(in);
+                    int col = Protocol.getCoord(in);
+                    match.place(connection.getSeat(), row, col, in.get() != 0);
+                }
+                break;
+            case Protocol.RANDOMIZE:
+                if (match == null) {
+                    connection.send(Protocol.ERROR, Protocol.BAD_REQUEST);
+                } else {
+                    match.randomize(connection.getSeat(), connection.getReactor().getRandom());
+                }
+                break;
+            case Protocol.FIRE:
+                if (match == null || payload != 4) {
+                    connection.send(Protocol.ERROR, Protocol.BAD_REQUEST);
+                } else {
+                    int row = Protocol.getCoord(in);
+                    int col = Protocol.getCoord(in);
+                    match.fire(connection.getSeat(), row, col);
+                }
+                break;
+            case Protocol.SALVO:
+                if (match == null || payload == 0 || payload % 4 != 0 || payload / 4 > Salvo.MAX_SHOTS) {
+                    connection.send(Protocol.ERROR, Protocol.BAD_REQUEST);
+                } else {
+                    int[] rows = new int[payload / 4];
+                    int[] cols = new int[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        rows[i] = Protocol.getCoord(in);
+                        cols[i] = Protocol.getCoord(in);
+                    }
+                    match.salvo(connection.getSeat(), rows, cols);
+                }
+                break;
+            default:
+                connection.send(Protocol.ERROR, Protocol.BAD_REQUEST);
+        }
+    }
+
+    private void join(Connection connection) {
+        Match match;
+        synchronized (lobbyLock) {
+            if (waiting == null || waiting.isClosed() || waiting == connection) {
+                waiting = connection;
+                return;
+            }
+            match = new Match(rules, fleetGenerator, log, waiting, connection);
+            // Joined under the lock, so a seat that disconnects from here on
+            // finds its match and leaves it
+            waiting.join(match, 0);
+            connection.join(match, 1);
+            waiting = null;
+        }
+        match.start();
+    }
+
+    // Called once per connection on its reactor thread
+    void disconnected(Connection connection) {
+        synchronized (lobbyLock) {
+            if (waiting == connection)
+                waiting = null;
+        }
+        Match match = connection.getMatch();
+        if (match != null)
+            match.leave(connection.getSeat());
+    }
+
+    class Reactor {
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final SplittableRandom random = new SplittableRandom();
+
+        Reactor(int id) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this::run, "server-reactor-" + id);
+            thread.setDaemon(true);
+        }
+
+        GameServer getServer() {
+            return GameServer.this;
+        }
+
+        // Only touched on this reactor's thread
+        SplittableRandom getRandom() {
+            return random;
+        }
+
+        boolean inReactor() {
+            return Thread.currentThread() == thread;
+        }
+
+        // Runs the task on this reactor's thread
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(this, channel, key));
+            } catch (IOException e) {
+                System.err.println("Register failed: " + e);
+            }
+        }
+
+        private void run() {
+            while (running) {
+                try {
+                    selector.select(this::ready);
+                } catch (IOException e) {
+                    System.err.println("Select failed: " + e);
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+
+        private void ready(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isWritable())
+                    connection.writable();
+                if (key.isValid() && key.isReadable())
+                    connection.read();
+            } catch (IOException e) {
+                connection.close();
+            } catch (RuntimeException e) {
+                // A bug on one connection must not stop the reactor serving the others
+                System.err.println("Closing connection after " + e);
+                connection.close();
+            }
+        }
+    }
+
+    // Usage: GameServer [port] [reactor threads] [move log, or - for none] [salvo]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        RuleSet rules = args.length > 3 && args[3].equals("salvo") ? RuleSet.SALVO : RuleSet.STANDARD;
+        GameServer server = new GameServer(port, threads, rules);
+        if (args.length > 2 && !args[2].equals("-"))
+            server.setLog(new MoveLog(Paths.get(args[2])));
+        server.start();
+        System.out.println("Listening on port " + server.getPort() + " with " + threads + " reactors");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,76 @@
+package battleship;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Compact image of a Game after its first getPosition() journal entries: each
+// fleet as PLACE moves, each board's shot cells and whose turn it is. Hits and
+// sunk ships follow from the shots, so they are not stored.
+public class GameSnapshot {
+    private final int position;
+    private final boolean firstPlayerToMove;
+    private final long[][] fleets;
+    private final long[][] shots;
+
+    GameSnapshot(int position, boolean firstPlayerToMove, long[][] fleets, long[][] shots) {
+        this.position = position;
+        this.firstPlayerToMove = firstPlayerToMove;
+        this.fleets = fleets;
+        this.shots = shots;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean isFirstPlayerToMove() {
+        return firstPlayerToMove;
+    }
+
+    // PLACE moves of the player's pieces
+    public long[] getFleet(int player) {
+        return fleets[player].clone();
+    }
+
+    // Shot cells of the player's board as row * cols + col
+    public long[] getShots(int player) {
+        return shots[player].clone();
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(position);
+        out.writeBoolean(firstPlayerToMove);
+        for (int player = 0; player < 2; player++) {
+            writeLongs(out, fleets[player]);
+            writeLongs(out, shots[player]);
+        }
+    }
+
+    static GameSnapshot read(DataInput in) throws IOException {
+        int position = in.readInt();
+        boolean firstPlayerToMove = in.readBoolean();
+        long[][] fleets = new long[2][];
+        long[][] shots = new long[2][];
+        for (int player = 0; player < 2; player++) {
+            fleets[player] = readLongs(in);
+            shots[player] = readLongs(in);
+        }
+        return new GameSnapshot(position, firstPlayerToMove, fleets, shots);
+    }
+
+    private static void writeLongs(DataOutput out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readLongs(DataInput in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,237 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Placement and opening statistics over a MoveLog, gathered in one pass with
+// fixed-size tables, so memory does not grow with the number of games. The
+// log is split into block ranges that are scanned in parallel, each into its
+// own GameStats, and the partial tables are added up at the end.
+//
+// Player 0 is the player who moved first (see GameRecorder). Shots to sink
+// count the shots the attacker had fired in the game when the piece went
+// down, the sinking shot included.
+public class GameStats implements MoveLogReader.Visitor {
+    private static final int CHUNK_BLOCKS = 256; // 16 MiB of log per task
+    private static final int MAX_PIECES = 64;
+
+    private long games;
+    private final long[] wins = new long[2];
+    private long layouts;
+    private final long[] shipCells = new long[BitBoard.CELLS];
+    private final long[][] firstShots = new long[2][BitBoard.CELLS];
+    // shotsToSink[size][shots]: pieces of that size sunk on the attacker's n-th shot
+    private final long[][] shotsToSink = new long[Placements.MAX_SIZE + 1][BitBoard.CELLS + 1];
+
+    // The game being read; piece + 1 on each ship cell
+    private final byte[][] pieceAt = new byte[2][BitBoard.CELLS];
+    private final int[][] pieceSize = new int[2][MAX_PIECES];
+    private final int[][] afloatCells = new int[2][MAX_PIECES];
+    private final int[] pieceCount = new int[2];
+    private final int[] shotsFired = new int[2];
+
+    @Override
+    public void gameStart(long offset) {
+        for (int player = 0; player < 2; player++) {
+            Arrays.fill(pieceAt[player], (byte) 0);
+            pieceCount[player] = 0;
+            shotsFired[player] = 0;
+        }
+    }
+
+    @Override
+    public void placement(int player, int cell, boolean isHorizontal, int size) {
+        int piece = pieceCount[player]++;
+        if (piece == 0)
+            layouts++;
+        pieceSize[player][piece] = size;
+        afloatCells[player][piece] = size;
+        int id = Placements.id(size, cell / BitBoard.SIZE, cell % BitBoard.SIZE, isHorizontal);
+        for (int c : Placements.cells(id)) {
+            pieceAt[player][c] = (byte) (piece + 1);
+            shipCells[c]++;
+        }
+    }
+
+    @Override
+    public void shot(int target, int cell) {
+        int shooter = 1 - target;
+        if (shotsFired[shooter]++ == 0)
+            firstShots[shooter][cell]++;
+        int piece = pieceAt[target][cell] - 1;
+        if (piece < 0)
+            return;
+        pieceAt[target][cell] = 0;
+        if (--afloatCells[target][piece] == 0)
+            shotsToSink[pieceSize[target][piece]][shotsFired[shooter]]++;
+    }
+
+    @Override
+    public void gameEnd(int winner) {
+        games++;
+        wins[winner]++;
+    }
+
+    public GameStats merge(GameStats other) {
+        games += other.games;
+        layouts += other.layouts;
+        for (int i = 0; i < 2; i++) {
+            wins[i] += other.wins[i];
+            add(firstShots[i], other.firstShots[i]);
+        }
+        add(shipCells, other.shipCells);
+        for (int size = 0; size < shotsToSink.length; size++) {
+            add(shotsToSink[size], other.shotsToSink[size]);
+        }
+        return this;
+    }
+
+    private static void add(long[] into, long[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += from[i];
+        }
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    // Share of the games won by the player who moved first
+    public double getFirstMoverWinRate() {
+        return games == 0 ? 0 : (double) wins[0] / games;
+    }
+
+    // Share of fleet layouts with a ship on the cell
+    public double getShipFrequency(int row, int col) {
+        return layouts == 0 ? 0 : (double) shipCells[BitBoard.index(row, col)] / layouts;
+    }
+
+    // Share of games in which the player opened on the cell
+    public double getFirstShotFrequency(int player, int row, int col) {
+        long opened = 0;
+        for (long n : firstShots[player]) {
+            opened += n;
+        }
+        return opened == 0 ? 0 : (double) firstShots[player][BitBoard.index(row, col)] / opened;
+    }
+
+    public long getSunk(int size) {
+        long sunk = 0;
+        for (long n : shotsToSink[size]) {
+            sunk += n;
+        }
+        return sunk;
+    }
+
+    public double getAverageShotsToSink(int size) {
+        long sunk = 0;
+        long shots = 0;
+        for (int n = 0; n < shotsToSink[size].length; n++) {
+            sunk += shotsToSink[size][n];
+            shots += n * shotsToSink[size][n];
+        }
+        return sunk == 0 ? 0 : (double) shots / sunk;
+    }
+
+    // Smallest n such that at least the given share of the pieces sank by the attacker's n-th shot
+    public int getShotsToSinkPercentile(int size, double q) {
+        long rank = (long) Math.ceil(q * getSunk(size));
+        long seen = 0;
+        for (int n = 0; n < shotsToSink[size].length; n++) {
+            seen += shotsToSink[size][n];
+            if (seen >= Math.max(rank, 1))
+                return n;
+        }
+        return 0;
+    }
+
+    public static GameStats of(MoveLogReader reader) throws IOException {
+        return of(reader, ForkJoinPool.commonPool());
+    }
+
+    public static GameStats of(MoveLogReader reader, ForkJoinPool pool) throws IOException {
+        try {
+            return pool.invoke(new Chunk(reader, 0, reader.getBlockCount()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class Chunk extends RecursiveTask<GameStats> {
+        private final MoveLogReader reader;
+        private final long from;
+        private final long to;
+
+        Chunk(MoveLogReader reader, long from, long to) {
+            this.reader = reader;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GameStats compute() {
+            if (to - from <= CHUNK_BLOCKS) {
+                GameStats stats = new GameStats();
+                try {
+                    reader.scan(stats, from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return stats;
+            }
+            long mid = (from + to) >>> 1;
+            Chunk left = new Chunk(reader, from, mid);
+            left.fork();
+            GameStats right = new Chunk(reader, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%,d games, first mover wins %.2f%%%n", games, 100 * getFirstMoverWinRate()));
+        grid(sb, "Ship frequency per cell (%):", this::getShipFrequency);
+        grid(sb, "First shots of the first mover (%):", (row, col) -> getFirstShotFrequency(0, row, col));
+        grid(sb, "First shots of the second mover (%):", (row, col) -> getFirstShotFrequency(1, row, col));
+        sb.append(String.format("Attacker's shots when sunk:%n"));
+        for (int size = 1; size < shotsToSink.length; size++) {
+            long sunk = getSunk(size);
+            if (sunk == 0)
+                continue;
+            sb.append(String.format("  %-10s %,12d sunk  mean %5.1f  p50 %2d  p90 %2d%n",
+                    Piece.ofSize(size).getClass().getSimpleName(), sunk, getAverageShotsToSink(size),
+                    getShotsToSinkPercentile(size, 0.5), getShotsToSinkPercentile(size, 0.9)));
+        }
+        return sb.toString();
+    }
+
+    private interface CellValue {
+        double get(int row, int col);
+    }
+
+    private static void grid(StringBuilder sb, String title, CellValue value) {
+        sb.append(title).append(System.lineSeparator());
+        for (int row = 0; row < BitBoard.SIZE; row++) {
+            for (int col = 0; col < BitBoard.SIZE; col++) {
+                sb.append(String.format("%6.2f", 100 * value.get(row, col)));
+            }
+            sb.append(System.lineSeparator());
+        }
+    }
+
+    // Usage: GameStats <move log>; Simulator writes one when given a file name
+    public static void main(String[] args) throws IOException {
+        try (MoveLogReader reader = new MoveLogReader(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            GameStats stats = of(reader);
+            System.out.print(stats);
+            System.out.printf("in %.3f s%n", (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package battleship;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Off-heap storage for many paused 9x9 games, one 64-byte slot each, in direct
+// ByteBuffer chunks of a million slots. Nothing per game lives on the heap, so
+// idle games cost neither heap space nor GC time. StoredGame reads and writes
+// a slot in place.
+//
+// Slot layout (longs are 8-byte aligned):
+//   0  player 0 ship mask, cells 0-63
+//   8  player 0 shot mask, cells 0-63
+//   16 player 0 packed: ship mask 64-80 (17 bits) | shot mask 64-80 (17) |
+//      hits per piece (2 bits x 6) | ships afloat (3)
+//   24, 32, 40  the same for player 1
+//   48 player 0 placements, 54 player 1: one byte per fleet piece,
+//      cell | horizontal << 7, or UNPLACED
+//   60 state: turn (bit 0) | phase (bits 1-2), FREE once freed | winner (bit 3)
+public class GameStore {
+    public static final int SLOT = 64;
+    public static final int MAX_PIECES = 6;
+    public static final int MAX_PIECE_SIZE = 3;
+
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_BITS;
+
+    private final RuleSet rules;
+    private final int[] fleet;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int capacity;
+    private int next;
+    private int[] free = new int[64];
+    private int freeCount;
+
+    public GameStore(RuleSet rules) {
+        if (!rules.isStandardBoard() || rules.getFleetSize() > MAX_PIECES)
+            throw new IllegalArgumentException("Slots hold 9x9 games with up to " + MAX_PIECES + " pieces");
+        for (int size : rules.getFleet()) {
+            if (size > MAX_PIECE_SIZE)
+                throw new IllegalArgumentException("Slots hold pieces up to size " + MAX_PIECE_SIZE);
+        }
+        this.rules = rules;
+        this.fleet = rules.getFleet();
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    int[] fleet() {
+        return fleet;
+    }
+
+    // Slots in use
+    public int size() {
+        return next - freeCount;
+    }
+
+    public long getOffHeapBytes() {
+        return (long) capacity * SLOT;
+    }
+
+    // Returns a slot holding a new game in the deployment phase
+    public int allocate() {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (next == capacity)
+                grow();
+            slot = next++;
+        }
+        ByteBuffer chunk = chunk(slot);
+        int base = offset(slot);
+        for (int i = 0; i < 48; i += 8) {
+            chunk.putLong(base + i, 0);
+        }
+        for (int i = 48; i < SLOT; i++) {
+            chunk.put(base + i, (byte) StoredGame.UNPLACED);
+        }
+        chunk.put(base + StoredGame.STATE, (byte) 0);
+        return slot;
+    }
+
+    public void free(int slot) {
+        if (slot < 0 || slot >= next)
+            throw new IllegalArgumentException("No slot " + slot);
+        ByteBuffer chunk = chunk(slot);
+        int state = offset(slot) + StoredGame.STATE;
+        // Freeing twice would hand the slot to two games
+        if ((chunk.get(state) >> 1 & 3) == StoredGame.FREE)
+            throw new IllegalStateException("Slot " + slot + " is already free");
+        chunk.put(state, (byte) (StoredGame.FREE << 1));
+        if (freeCount == free.length)
+            free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = slot;
+    }
+
+    // A flyweight over the slot; moveTo re-points it without allocating
+    public StoredGame view(int slot) {
+        return new StoredGame(this, slot);
+    }
+
+    private void grow() {
+        chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        chunks[chunks.length - 1] = ByteBuffer.allocateDirect(CHUNK_SLOTS * SLOT).order(ByteOrder.nativeOrder());
+        capacity += CHUNK_SLOTS;
+    }
+
+    ByteBuffer chunk(int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    static int offset(int slot) {
+        return (slot & (CHUNK_SLOTS - 1)) * SLOT;
+    }
+
+    // Usage: GameStore [games]; direct memory (-XX:MaxDirectMemorySize) must cover 64 bytes a game
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        GameStore store = new GameStore(RuleSet.STANDARD);
+        FleetGenerator generator = new FleetGenerator(RuleSet.STANDARD);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] ids = new int[RuleSet.STANDARD.getFleetSize()];
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        StoredGame game = store.view(store.allocate());
+        store.free(game.getSlot());
+        for (int i = 0; i < games; i++) {
+            game.moveTo(store.allocate());
+            for (int player = 0; player < 2; player++) {
+                generator.sample(random, ids);
+                game.placeFleet(player, ids);
+            }
+            // Leave each game paused a few shots in
+            for (int shot = 0; shot < 20 && game.getPhase() == StoredGame.PLAY; shot++) {
+                int cell = random.nextInt(BitBoard.CELLS);
+                if (game.fire(cell / BitBoard.SIZE, cell % BitBoard.SIZE) != StoredGame.ALREADY_SHOT)
+                    game.nextTurn();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%d games in %.3f s, %d MiB off-heap, heap grew %d KiB%n", store.size(), elapsed / 1e9,
+                store.getOffHeapBytes() >> 20, (heapAfter - heapBefore) >> 10);
+    }
+}
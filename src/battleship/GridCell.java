@@ -1,39 +1,30 @@
 package battleship;
 
+// View of one cell of a player's Board, kept for the JavaFX layer.
 public class GridCell {
-    private int row;
-    private int col;
-    private boolean hasPiece;
-    private boolean isHit;
-    private Piece piece;
+    private final Player owner;
+    private final int row;
+    private final int col;
 
-    public GridCell(int row, int col) {
+    public GridCell(Player owner, int row, int col) {
+        this.owner = owner;
         this.row = row;
         this.col = col;
-        this.hasPiece = false;
-        this.isHit = false;
     }
 
     public boolean hasPiece() {
-        return hasPiece;
+        return owner.getBoard().hasShip(row, col);
     }
 
     public boolean isHit() {
-        return isHit;
+        return owner.getBoard().isShot(row, col);
     }
 
     public Piece getPiece() {
-        return piece;
-    }
-
-    public void setPiece(Piece piece) {
-        this.piece = piece;
-        this.hasPiece = true;
+        return owner.getPieceAt(row, col);
     }
 
     public void hit() {
-        this.isHit = true;
-        if (piece != null)
-            piece.hit(row, col);
+        owner.receiveShot(row, col);
     }
 }
@@ -0,0 +1,189 @@
+package battleship;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Probability-density targeting: every cell is scored by how many legal
+// placements of the remaining pieces cover it. Placements are only ever ruled
+// out (misses, hits and sinks are permanent), so after each shot just the
+// placements whose halo contains the shot cell are re-checked.
+public class HeatmapStrategy implements ShotStrategy {
+    private static final int MAX_SIZE = Placements.MAX_SIZE;
+
+    private final boolean[] alive = new boolean[Placements.COUNT];
+    private final int[] cover = new int[(MAX_SIZE + 1) * BitBoard.CELLS];
+    private final int[] remaining = new int[MAX_SIZE + 1];
+    private final int[] score = new int[BitBoard.CELLS];
+    private final int[] visited = new int[Placements.COUNT];
+    private int epoch;
+    private long shotLo, shotHi;
+    private long hitLo, hitHi;
+    private long sunkLo, sunkHi;
+    private boolean noTouching;
+    private SplittableRandom random;
+
+    @Override
+    public String getName() {
+        return "heatmap";
+    }
+
+    @Override
+    public void newGame(RuleSet rules, SplittableRandom random) {
+        if (!rules.isStandardBoard())
+            throw new IllegalArgumentException(getName() + " only plays on a 9x9 board");
+        this.random = random;
+        this.noTouching = rules.isNoTouching();
+        shotLo = shotHi = hitLo = hitHi = sunkLo = sunkHi = 0;
+        Arrays.fill(remaining, 0);
+        Arrays.fill(cover, 0);
+        for (int size : rules.getFleet()) {
+            remaining[size]++;
+        }
+        Arrays.fill(alive, false);
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            if (remaining[size] == 0)
+                continue;
+            int base = size * BitBoard.CELLS;
+            for (int p : Placements.ofSize(size)) {
+                alive[p] = true;
+                for (int cell : Placements.cells(p)) {
+                    cover[base + cell]++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void shotResult(int index, boolean hit, Piece sunk) {
+        shotLo |= BitBoard.lo(index);
+        shotHi |= BitBoard.hi(index);
+        if (hit) {
+            hitLo |= BitBoard.lo(index);
+            hitHi |= BitBoard.hi(index);
+        }
+        for (int p : Placements.touching(index)) {
+            if (!alive[p])
+                continue;
+            boolean covers = inFoot(p, index);
+            boolean dead;
+            if (!hit) {
+                dead = covers;
+            } else if (!covers) {
+                // The hit ship would touch this placement
+                dead = noTouching;
+            } else {
+                // Fully hit without a sink report means it is not a whole ship
+                dead = ((Placements.footLo(p) & ~hitLo) | (Placements.footHi(p) & ~hitHi)) == 0;
+            }
+            if (dead)
+                kill(p);
+        }
+        if (sunk != null) {
+            long lo = sunk.getMaskLo();
+            long hi = sunk.getMaskHi();
+            sunkLo |= lo;
+            sunkHi |= hi;
+            remaining[sunk.getSize()]--;
+            for (int i = 0; i < sunk.getSize(); i++) {
+                int cell = BitBoard.selectBit(lo, hi, i);
+                for (int p : Placements.touching(cell)) {
+                    if (alive[p] && inFoot(p, cell))
+                        kill(p);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int nextShot() {
+        Arrays.fill(score, 0);
+        long openLo = hitLo & ~sunkLo;
+        long openHi = hitHi & ~sunkHi;
+        if ((openLo | openHi) != 0) {
+            scoreTargets(openLo, openHi);
+        } else {
+            for (int size = 1; size <= MAX_SIZE; size++) {
+                int weight = remaining[size];
+                if (weight == 0)
+                    continue;
+                int base = size * BitBoard.CELLS;
+                for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                    score[cell] += weight * cover[base + cell];
+                }
+            }
+        }
+        return best();
+    }
+
+    // Scores once and takes the count best cells, each pick counted as shot
+    // for the ones after it
+    @Override
+    public int nextShots(int[] cells, int count) {
+        long lo = shotLo;
+        long hi = shotHi;
+        cells[0] = nextShot();
+        for (int i = 1; i < count; i++) {
+            shotLo |= BitBoard.lo(cells[i - 1]);
+            shotHi |= BitBoard.hi(cells[i - 1]);
+            cells[i] = best();
+        }
+        shotLo = lo;
+        shotHi = hi;
+        return count;
+    }
+
+    // Only placements through an unsunk hit count, weighted by hits covered.
+    private void scoreTargets(long openLo, long openHi) {
+        epoch++;
+        int open = BitBoard.bitCount(openLo, openHi);
+        for (int i = 0; i < open; i++) {
+            int hitCell = BitBoard.selectBit(openLo, openHi, i);
+            for (int p : Placements.touching(hitCell)) {
+                if (!alive[p] || visited[p] == epoch || !inFoot(p, hitCell))
+                    continue;
+                visited[p] = epoch;
+                int weight = remaining[Placements.size(p)]
+                        * BitBoard.bitCount(Placements.footLo(p) & openLo, Placements.footHi(p) & openHi);
+                for (int cell : Placements.cells(p)) {
+                    score[cell] += weight;
+                }
+            }
+        }
+    }
+
+    private int best() {
+        int pick = -1;
+        int bestScore = 0;
+        int ties = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (Placements.contains(shotLo, shotHi, cell))
+                continue;
+            int s = score[cell];
+            if (s > bestScore) {
+                bestScore = s;
+                pick = cell;
+                ties = 1;
+            } else if (s == bestScore && s > 0 && random.nextInt(++ties) == 0) {
+                pick = cell;
+            }
+        }
+        if (pick >= 0)
+            return pick;
+        // Nothing consistent left (e.g. a non-standard fleet); fall back to any unshot cell
+        long lo = ~shotLo;
+        long hi = ~shotHi & BitBoard.FULL_HI;
+        return BitBoard.selectBit(lo, hi, random.nextInt(BitBoard.bitCount(lo, hi)));
+    }
+
+    private void kill(int p) {
+        alive[p] = false;
+        int base = Placements.size(p) * BitBoard.CELLS;
+        for (int cell : Placements.cells(p)) {
+            cover[base + cell]--;
+        }
+    }
+
+    private static boolean inFoot(int p, int cell) {
+        return Placements.contains(Placements.footLo(p), Placements.footHi(p), cell);
+    }
+}
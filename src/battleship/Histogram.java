@@ -0,0 +1,106 @@
+package battleship;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Distribution of non-negative longs (nanoseconds, bytes) in log-linear
+// buckets: each power of two is split into 16, so a percentile is off by at
+// most 1/16 of its value. Recording is a few atomic adds and never allocates,
+// and threads may record concurrently. Does nothing unless Metrics.ENABLED.
+public class Histogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long value) {
+        if (!Metrics.ENABLED)
+            return;
+        value = Math.max(value, 0);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    // Records the time since start, a System.nanoTime reading from Metrics.start
+    public void recordSince(long start) {
+        if (Metrics.ENABLED)
+            record(System.nanoTime() - start);
+    }
+
+    // Records the bytes this thread allocated since a Metrics.allocated reading
+    public void recordAllocatedSince(long allocated) {
+        if (Metrics.ENABLED && allocated >= 0)
+            record(Metrics.allocated() - allocated);
+    }
+
+    // Values below 16 get a bucket each; above, the bucket is the position of
+    // the top bit and the 4 bits below it
+    private static int bucket(long value) {
+        if (value < SUB)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB + (int) (value >>> shift) - SUB;
+    }
+
+    // The largest value that falls in the bucket
+    private static long bucketLimit(int bucket) {
+        if (bucket < SUB)
+            return bucket;
+        int shift = bucket / SUB - 1;
+        long base = (long) (bucket % SUB + SUB) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // Upper bound of the bucket holding the q-th quantile, e.g. q = 0.99
+    public long getPercentile(double q) {
+        long n = count.sum();
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank)
+                return Math.min(bucketLimit(i), getMax());
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
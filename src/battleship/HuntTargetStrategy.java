@@ -0,0 +1,87 @@
+package battleship;
+
+import java.util.SplittableRandom;
+
+// Fires on a checkerboard until it hits, then works through the neighbours of
+// its hits until the ship is sunk.
+public class HuntTargetStrategy implements ShotStrategy {
+    private static final long PARITY_LO;
+    private static final long PARITY_HI;
+
+    static {
+        long lo = 0;
+        long hi = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (((cell / BitBoard.SIZE + cell % BitBoard.SIZE) & 1) == 0) {
+                lo |= BitBoard.lo(cell);
+                hi |= BitBoard.hi(cell);
+            }
+        }
+        PARITY_LO = lo;
+        PARITY_HI = hi;
+    }
+
+    private final int[] targets = new int[BitBoard.CELLS * 4];
+    private int targetCount;
+    private long shotLo;
+    private long shotHi;
+    private SplittableRandom random;
+
+    @Override
+    public String getName() {
+        return "hunt";
+    }
+
+    @Override
+    public void newGame(RuleSet rules, SplittableRandom random) {
+        if (!rules.isStandardBoard())
+            throw new IllegalArgumentException(getName() + " only plays on a 9x9 board");
+        this.random = random;
+        targetCount = 0;
+        shotLo = 0;
+        shotHi = 0;
+    }
+
+    @Override
+    public int nextShot() {
+        while (targetCount > 0) {
+            int cell = targets[--targetCount];
+            if (!isShot(cell))
+                return cell;
+        }
+        int cell = randomUnshot(true);
+        return cell >= 0 ? cell : randomUnshot(false);
+    }
+
+    @Override
+    public void shotResult(int index, boolean hit, Piece sunk) {
+        shotLo |= BitBoard.lo(index);
+        shotHi |= BitBoard.hi(index);
+        if (sunk != null) {
+            targetCount = 0;
+        } else if (hit) {
+            int row = index / BitBoard.SIZE;
+            int col = index % BitBoard.SIZE;
+            if (row > 0)
+                targets[targetCount++] = index - BitBoard.SIZE;
+            if (row < BitBoard.SIZE - 1)
+                targets[targetCount++] = index + BitBoard.SIZE;
+            if (col > 0)
+                targets[targetCount++] = index - 1;
+            if (col < BitBoard.SIZE - 1)
+                targets[targetCount++] = index + 1;
+        }
+    }
+
+    private boolean isShot(int cell) {
+        return ((shotLo & BitBoard.lo(cell)) | (shotHi & BitBoard.hi(cell))) != 0;
+    }
+
+    // Uniform pick over the unshot cells, optionally restricted to one colour
+    private int randomUnshot(boolean parity) {
+        long lo = ~shotLo & (parity ? PARITY_LO : BitBoard.FULL_LO);
+        long hi = ~shotHi & (parity ? PARITY_HI : BitBoard.FULL_HI);
+        int count = BitBoard.bitCount(lo, hi);
+        return count == 0 ? -1 : BitBoard.selectBit(lo, hi, random.nextInt(count));
+    }
+}
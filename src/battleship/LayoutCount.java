@@ -0,0 +1,45 @@
+package battleship;
+
+// Number of legal layouts of a fleet on the 9x9 board, and in how many of
+// them each cell holds a ship.
+public class LayoutCount {
+    private final long total;
+    private final long[] occupancy;
+    private final long elapsedNanos;
+
+    LayoutCount(long total, long[] occupancy, long elapsedNanos) {
+        this.total = total;
+        this.occupancy = occupancy;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getOccupancy(int row, int col) {
+        return occupancy[BitBoard.index(row, col)];
+    }
+
+    // Chance that the cell holds a ship in a uniformly random layout
+    public double getFrequency(int row, int col) {
+        return total == 0 ? 0 : (double) getOccupancy(row, col) / total;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%,d layouts in %.3f s, ship frequency per cell (%%):%n", total, elapsedNanos / 1e9));
+        for (int row = 0; row < BitBoard.SIZE; row++) {
+            for (int col = 0; col < BitBoard.SIZE; col++) {
+                sb.append(String.format("%6.2f", 100 * getFrequency(row, col)));
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
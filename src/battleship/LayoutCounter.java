@@ -0,0 +1,281 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+// Counts every legal layout of a rule set's fleet on the 9x9 board, with the
+// same rules as Player.isValidPlacement, and how often each cell is occupied.
+//
+// Pieces go largest first, identical pieces in increasing placement id so each
+// layout is seen once, and a placement is pruned with one mask test against
+// the cells the ships so far rule out. The last piece is never placed: when
+// it is a single cell, every free cell is one layout, so a popcount gives the
+// count and a bit-sliced counter the occupancy. The work is split over the
+// first piece's placements on the fork-join pool. When that piece is the only
+// one of its size, the 8 symmetries of the board map its placements onto each
+// other, so only one placement per orbit is searched and its counts are mapped
+// onto the rest of the orbit.
+public class LayoutCounter {
+    private static final int SYMMETRIES = 8;
+
+    private final RuleSet rules;
+    private final int[] sizes;
+
+    public LayoutCounter(RuleSet rules) {
+        if (!rules.isStandardBoard())
+            throw new IllegalArgumentException("Layouts are counted on the 9x9 board, got " + rules);
+        this.rules = rules;
+        sizes = rules.getFleet();
+        Arrays.sort(sizes);
+        for (int i = 0, j = sizes.length - 1; i < j; i++, j--) {
+            int t = sizes[i];
+            sizes[i] = sizes[j];
+            sizes[j] = t;
+        }
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    public LayoutCount count() {
+        return count(ForkJoinPool.commonPool());
+    }
+
+    public LayoutCount count(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        if (sizes.length == 0)
+            return new LayoutCount(1, new long[BitBoard.CELLS], System.nanoTime() - start);
+        boolean symmetric = sizes.length == 1 || sizes[1] != sizes[0];
+        List<Orbit> tasks = new ArrayList<>();
+        for (int id : Placements.ofSize(sizes[0])) {
+            if (!symmetric) {
+                tasks.add(new Orbit(id, new int[] { 0 }));
+                continue;
+            }
+            // The placement with the lowest id stands for its orbit
+            int[] images = new int[SYMMETRIES];
+            int[] maps = new int[SYMMETRIES];
+            int n = 0;
+            boolean lowest = true;
+            for (int g = 0; g < SYMMETRIES && lowest; g++) {
+                int image = transform(g, id);
+                lowest = image >= id;
+                boolean seen = false;
+                for (int i = 0; i < n; i++) {
+                    seen |= images[i] == image;
+                }
+                if (!seen) {
+                    images[n] = image;
+                    maps[n++] = g;
+                }
+            }
+            if (lowest)
+                tasks.add(new Orbit(id, Arrays.copyOf(maps, n)));
+        }
+        long total = 0;
+        long[] occupancy = new long[BitBoard.CELLS];
+        pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        for (Orbit task : tasks) {
+            long[] counted = task.join();
+            total += counted[BitBoard.CELLS] * task.maps.length;
+            for (int g : task.maps) {
+                for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                    occupancy[transformCell(g, cell)] += counted[cell];
+                }
+            }
+        }
+        return new LayoutCount(total, occupancy, System.nanoTime() - start);
+    }
+
+    // Counts the layouts with the first piece on one placement; the result
+    // holds the occupancy per cell followed by the number of layouts.
+    @SuppressWarnings("serial")
+    private class Orbit extends RecursiveTask<long[]> {
+        private final int first;
+        private final int[] maps; // a symmetry onto each placement of the orbit
+
+        Orbit(int first, int[] maps) {
+            this.first = first;
+            this.maps = maps;
+        }
+
+        @Override
+        protected long[] compute() {
+            long[] counted = new long[BitBoard.CELLS + 1];
+            Tally tally = new Tally();
+            long n = sizes.length == 1 ? 1 : count(1, first, reachLo(first), reachHi(first), counted, tally);
+            tally.flush(counted);
+            for (int cell : Placements.cells(first)) {
+                counted[cell] += n;
+            }
+            counted[BitBoard.CELLS] = n;
+            return counted;
+        }
+    }
+
+    private long reachLo(int id) {
+        return rules.isNoTouching() ? Placements.haloLo(id) : Placements.footLo(id);
+    }
+
+    private long reachHi(int id) {
+        return rules.isNoTouching() ? Placements.haloHi(id) : Placements.footHi(id);
+    }
+
+    // Layouts of pieces k and on around the ships that rule out the blocked cells
+    private long count(int k, int previous, long blockedLo, long blockedHi, long[] occupancy, Tally tally) {
+        int size = sizes[k];
+        boolean last = k == sizes.length - 1;
+        boolean same = sizes[k - 1] == size;
+        if (last && size == 1) {
+            long lo = ~blockedLo;
+            long hi = ~blockedHi & BitBoard.FULL_HI;
+            if (same) {
+                // Only cells after the previous single cell
+                int from = Placements.cell(previous) + 1;
+                if (from < 64) {
+                    lo &= -1L << from;
+                } else {
+                    lo = 0;
+                    hi &= -1L << (from - 64);
+                }
+            }
+            tally.add(lo, hi);
+            return BitBoard.bitCount(lo, hi);
+        }
+        long total = 0;
+        for (int id : Placements.ofSize(size)) {
+            if (same && id <= previous)
+                continue;
+            if (((Placements.footLo(id) & blockedLo) | (Placements.footHi(id) & blockedHi)) != 0)
+                continue;
+            if (last) {
+                tally.add(Placements.footLo(id), Placements.footHi(id));
+                total++;
+                continue;
+            }
+            long n = count(k + 1, id, blockedLo | reachLo(id), blockedHi | reachHi(id), occupancy, tally);
+            for (int cell : Placements.cells(id)) {
+                occupancy[cell] += n;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    // Per-cell counters kept as bit planes: plane j holds bit j of every
+    // cell's count, so adding a mask is a carry ripple over a few planes
+    // instead of an increment per cell.
+    private static class Tally {
+        private static final int PLANES = 40;
+
+        private final long[] lo = new long[PLANES];
+        private final long[] hi = new long[PLANES];
+
+        void add(long addLo, long addHi) {
+            for (int j = 0; (addLo | addHi) != 0; j++) {
+                long carryLo = lo[j] & addLo;
+                long carryHi = hi[j] & addHi;
+                lo[j] ^= addLo;
+                hi[j] ^= addHi;
+                addLo = carryLo;
+                addHi = carryHi;
+            }
+        }
+
+        void flush(long[] counts) {
+            for (int j = 0; j < PLANES; j++) {
+                for (long bits = lo[j]; bits != 0; bits &= bits - 1) {
+                    counts[Long.numberOfTrailingZeros(bits)] += 1L << j;
+                }
+                for (long bits = hi[j]; bits != 0; bits &= bits - 1) {
+                    counts[64 + Long.numberOfTrailingZeros(bits)] += 1L << j;
+                }
+                lo[j] = hi[j] = 0;
+            }
+        }
+    }
+
+    // Calls the action with the placement ids of every layout, largest piece
+    // first. The array is reused between calls.
+    public void forEach(Consumer<int[]> action) {
+        visit(0, new int[sizes.length], 0, 0, action);
+    }
+
+    private void visit(int k, int[] ids, long blockedLo, long blockedHi, Consumer<int[]> action) {
+        if (k == sizes.length) {
+            action.accept(ids);
+            return;
+        }
+        boolean same = k > 0 && sizes[k - 1] == sizes[k];
+        for (int id : Placements.ofSize(sizes[k])) {
+            if (same && id <= ids[k - 1])
+                continue;
+            if (((Placements.footLo(id) & blockedLo) | (Placements.footHi(id) & blockedHi)) != 0)
+                continue;
+            ids[k] = id;
+            visit(k + 1, ids, blockedLo | reachLo(id), blockedHi | reachHi(id), action);
+        }
+    }
+
+    // The 8 symmetries of the square board: 4 rotations, each optionally mirrored
+    static int transformCell(int g, int cell) {
+        int max = BitBoard.SIZE - 1;
+        int row = cell / BitBoard.SIZE;
+        int col = cell % BitBoard.SIZE;
+        if ((g & 4) != 0)
+            col = max - col;
+        for (int i = 0; i < (g & 3); i++) {
+            int t = row;
+            row = col;
+            col = max - t;
+        }
+        return BitBoard.index(row, col);
+    }
+
+    static int transform(int g, int id) {
+        int[] cells = Placements.cells(id);
+        int a = transformCell(g, cells[0]);
+        int b = transformCell(g, cells[cells.length - 1]);
+        int start = Math.min(a, b);
+        boolean horizontal = cells.length == 1 || a / BitBoard.SIZE == b / BitBoard.SIZE;
+        return Placements.id(cells.length, start / BitBoard.SIZE, start % BitBoard.SIZE, horizontal);
+    }
+
+    // Usage: LayoutCounter [samples]
+    // Counts the standard fleet's layouts, then checks FleetGenerator against
+    // the exact frequencies with that many random layouts.
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        LayoutCount count = new LayoutCounter(RuleSet.STANDARD).count();
+        System.out.print(count);
+        if (samples == 0)
+            return;
+        FleetGenerator generator = FleetGenerator.standard();
+        SplittableRandom random = new SplittableRandom(42);
+        int[] ids = new int[RuleSet.STANDARD.getFleetSize()];
+        long[] seen = new long[BitBoard.CELLS];
+        for (int i = 0; i < samples; i++) {
+            generator.sample(random, ids);
+            for (int id : ids) {
+                for (int cell : Placements.cells(id)) {
+                    seen[cell]++;
+                }
+            }
+        }
+        double worst = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            double p = count.getFrequency(cell / BitBoard.SIZE, cell % BitBoard.SIZE);
+            double z = (seen[cell] - samples * p) / Math.sqrt(samples * p * (1 - p));
+            worst = Math.max(worst, Math.abs(z));
+        }
+        System.out.printf("FleetGenerator over %,d layouts: largest deviation from the exact frequencies %.2f sigma%n",
+                samples, worst);
+    }
+}
@@ -0,0 +1,280 @@
+package battleship;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+// Load generator for GameServer: opens two connections per match, plays random
+// games back to back and reports the FIRE to SHOT round trip seen by the
+// shooter. Each move waits a random 0.5x to 1.5x of the think time first, so
+// the offered load is about matches / think time moves per second without
+// bursts. Nothing is recorded during the warmup.
+public class LoadClient {
+    private static final int MAX_MICROS = 100_000;
+
+    private final InetSocketAddress address;
+    private final long warmupEnd;
+    private final long end;
+    private final long thinkNanos;
+
+    public LoadClient(InetSocketAddress address, long thinkNanos, long warmupNanos, long runNanos) {
+        this.address = address;
+        this.thinkNanos = thinkNanos;
+        long now = System.nanoTime();
+        this.warmupEnd = now + warmupNanos;
+        this.end = warmupEnd + runNanos;
+    }
+
+    private class Worker extends Thread {
+        private final Selector selector;
+        private final List<Client> clients = new ArrayList<>();
+        private final PriorityQueue<Client> thinking = new PriorityQueue<>(
+                (a, b) -> Long.compare(a.dueAt, b.dueAt));
+        private final long[] histogram = new long[MAX_MICROS + 1];
+        private final SplittableRandom random;
+        private long games;
+        private long errors;
+
+        Worker(int id, int connections) throws IOException {
+            super("load-" + id);
+            selector = Selector.open();
+            random = new SplittableRandom(id);
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(address);
+                Client client = new Client(channel, "load-" + id + "-" + i);
+                client.key = channel.register(selector, SelectionKey.OP_CONNECT, client);
+                clients.add(client);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    Client client;
+                    while ((client = thinking.peek()) != null && client.dueAt <= now) {
+                        try {
+                            thinking.poll().fire();
+                        } catch (IOException e) {
+                            errors++;
+                        }
+                    }
+                    long wait = client == null ? 100 : Math.max(1, (client.dueAt - now) / 1_000_000);
+                    selector.select(this::ready, wait);
+                }
+                for (Client client : clients) {
+                    client.channel.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void schedule(Client client) {
+            client.dueAt = System.nanoTime() + thinkNanos / 2 + random.nextLong(thinkNanos + 1);
+            thinking.add(client);
+        }
+
+        private void ready(SelectionKey key) {
+            Client client = (Client) key.attachment();
+            try {
+                if (key.isConnectable() && client.channel.finishConnect()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    client.join();
+                } else if (key.isReadable()) {
+                    client.read(this);
+                }
+            } catch (IOException e) {
+                errors++;
+                key.cancel();
+            }
+        }
+
+        void record(long nanos) {
+            if (System.nanoTime() >= warmupEnd)
+                histogram[(int) Math.min(nanos / 1000, MAX_MICROS)]++;
+        }
+    }
+
+    private static class Client {
+        private final SocketChannel channel;
+        private final String name;
+        private final ByteBuffer in = ByteBuffer.allocate(4096);
+        private final ByteBuffer out = ByteBuffer.allocate(64);
+        private SelectionKey key;
+        private int seat;
+        private int cols;
+        private int fleetSize;
+        private int[] order;
+        private int next;
+        private int sunkByOpponent;
+        private long firedAt;
+        private long dueAt;
+
+        Client(SocketChannel channel, String name) {
+            this.channel = channel;
+            this.name = name;
+        }
+
+        void join() throws IOException {
+            byte[] bytes = Protocol.encodeName(name);
+            Protocol.putHeader(out, Protocol.JOIN, bytes.length);
+            out.put(bytes);
+            flush();
+        }
+
+        void read(Worker worker) throws IOException {
+            if (channel.read(in) < 0)
+                throw new IOException("Server closed " + name);
+            in.flip();
+            int length;
+            while ((length = Protocol.frameLength(in)) >= 0) {
+                int end = in.position() + length;
+                byte type = in.get();
+                in.get();
+                handle(worker, type);
+                in.position(end);
+            }
+            in.compact();
+        }
+
+        private void handle(Worker worker, byte type) throws IOException {
+            switch (type) {
+                case Protocol.MATCHED:
+                    seat = in.get();
+                    int rows = Protocol.getCoord(in);
+                    cols = Protocol.getCoord(in);
+                    in.get();
+                    fleetSize = in.get() & 0xFF;
+                    order = shuffledCells(rows * cols, worker.random);
+                    next = 0;
+                    sunkByOpponent = 0;
+                    Protocol.putHeader(out, Protocol.RANDOMIZE, 0);
+                    flush();
+                    break;
+                case Protocol.START:
+                    if (in.get() == seat)
+                        worker.schedule(this);
+                    break;
+                case Protocol.SHOT:
+                    int shooter = in.get();
+                    in.getInt();
+                    boolean sunk = in.get() == Protocol.SUNK;
+                    if (shooter == seat) {
+                        worker.record(System.nanoTime() - firedAt);
+                    } else {
+                        if (sunk)
+                            sunkByOpponent++;
+                        // The last sink is followed by GAME_OVER
+                        if (sunkByOpponent < fleetSize)
+                            worker.schedule(this);
+                    }
+                    break;
+                case Protocol.GAME_OVER:
+                    worker.games++;
+                    join();
+                    break;
+                case Protocol.ERROR:
+                    worker.errors++;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        void fire() throws IOException {
+            int cell = order[next++];
+            Protocol.putHeader(out, Protocol.FIRE, 4);
+            Protocol.putCoord(out, cell / cols);
+            Protocol.putCoord(out, cell % cols);
+            firedAt = System.nanoTime();
+            flush();
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+    }
+
+    private static int[] shuffledCells(int cells, SplittableRandom random) {
+        int[] order = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        return order;
+    }
+
+    public void run(int matches, int threads) throws IOException, InterruptedException {
+        Worker[] workers = new Worker[threads];
+        int connections = matches * 2;
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i, connections / threads + (i < connections % threads ? 1 : 0));
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        long[] histogram = new long[MAX_MICROS + 1];
+        long games = 0;
+        long errors = 0;
+        for (Worker worker : workers) {
+            worker.join();
+            for (int i = 0; i <= MAX_MICROS; i++) {
+                histogram[i] += worker.histogram[i];
+            }
+            games += worker.games;
+            errors += worker.errors;
+        }
+        long moves = 0;
+        for (long count : histogram) {
+            moves += count;
+        }
+        double seconds = (end - warmupEnd) / 1e9;
+        System.out.printf("%d matches, %d games, %d moves (%.0f moves/s), %d errors%n",
+                matches, games, moves, moves / seconds, errors);
+        System.out.printf("latency us: p50 %d  p99 %d  p99.9 %d  max %d%n", percentile(histogram, moves, 0.5),
+                percentile(histogram, moves, 0.99), percentile(histogram, moves, 0.999),
+                percentile(histogram, moves, 1.0));
+    }
+
+    private static int percentile(long[] histogram, long total, double fraction) {
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i <= MAX_MICROS; i++) {
+            seen += histogram[i];
+            if (seen >= rank && histogram[i] > 0)
+                return i;
+        }
+        return 0;
+    }
+
+    // Usage: LoadClient [host] [port] [matches] [seconds] [think ms] [threads]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        int matches = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int think = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+        LoadClient client = new LoadClient(new InetSocketAddress(host, port), think * 1_000_000L,
+                5_000_000_000L, seconds * 1_000_000_000L);
+        client.run(matches, threads);
+    }
+}
@@ -0,0 +1,163 @@
+package battleship;
+
+import java.util.SplittableRandom;
+
+// A Game hosted by GameServer for two connections. The two seats may be served
+// by different reactor threads, so every request takes the match lock; that
+// keeps a shot and its nextTurn atomic without serializing unrelated matches.
+public class Match {
+    private final Game game;
+    private final FleetGenerator fleetGenerator;
+    private final Connection[] seats;
+    private final Player[] players;
+    private final Piece[][] fleets = new Piece[2][];
+    private final int[] placed = new int[2];
+    private int turn = -1;
+    private boolean over;
+
+    public Match(RuleSet rules, FleetGenerator fleetGenerator, MoveLog log, Connection first, Connection second) {
+        this.fleetGenerator = fleetGenerator;
+        game = new Game(first.getName(), second.getName(), rules);
+        if (log != null)
+            new GameRecorder(game, log);
+        seats = new Connection[] { first, second };
+        players = new Player[] { game.getCurrentPlayer(), game.getOpponent() };
+        fleets[0] = rules.newFleet();
+        fleets[1] = rules.newFleet();
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    // The seats have joined; one may have left already and ended the match
+    synchronized void start() {
+        if (over)
+            return;
+        for (int seat = 0; seat < 2; seat++) {
+            seats[seat].sendMatched(seat, game.getRules(), seats[1 - seat].getName());
+        }
+    }
+
+    synchronized void place(int seat, int row, int col, boolean isHorizontal) {
+        Connection connection = seats[seat];
+        if (over || placed[seat] == fleets[seat].length) {
+            connection.send(Protocol.ERROR, Protocol.WRONG_PHASE);
+            return;
+        }
+        if (!players[seat].placePiece(fleets[seat][placed[seat]], row, col, isHorizontal)) {
+            connection.send(Protocol.ERROR, Protocol.ILLEGAL_PLACEMENT);
+            return;
+        }
+        placed[seat]++;
+        fleetPlaced(seat);
+    }
+
+    synchronized void randomize(int seat, SplittableRandom random) {
+        if (over || placed[seat] == fleets[seat].length) {
+            seats[seat].send(Protocol.ERROR, Protocol.WRONG_PHASE);
+            return;
+        }
+        players[seat].clearPieces();
+        fleetGenerator.fill(players[seat], fleets[seat], random);
+        placed[seat] = fleets[seat].length;
+        fleetPlaced(seat);
+    }
+
+    private void fleetPlaced(int seat) {
+        seats[seat].send(Protocol.PLACED, placed[seat]);
+        if (placed[0] == fleets[0].length && placed[1] == fleets[1].length) {
+            turn = 0;
+            seats[0].send(Protocol.START, turn);
+            seats[1].send(Protocol.START, turn);
+        }
+    }
+
+    // A single FIRE is only a whole turn without salvo rules
+    synchronized void fire(int seat, int row, int col) {
+        if (game.getRules().isSalvo()) {
+            seats[seat].send(Protocol.ERROR, Protocol.WRONG_SHOT_COUNT);
+            return;
+        }
+        shoot(seat, new int[] { row }, new int[] { col }, false);
+    }
+
+    // A turn's shots in one request, answered with one SALVO_RESULT
+    synchronized void salvo(int seat, int[] rows, int[] cols) {
+        shoot(seat, rows, cols, true);
+    }
+
+    private void shoot(int seat, int[] rows, int[] cols, boolean batched) {
+        Connection connection = seats[seat];
+        if (over || turn < 0) {
+            connection.send(Protocol.ERROR, Protocol.WRONG_PHASE);
+            return;
+        }
+        if (turn != seat) {
+            connection.send(Protocol.ERROR, Protocol.NOT_YOUR_TURN);
+            return;
+        }
+        RuleSet rules = game.getRules();
+        Player target = players[1 - seat];
+        // A turn fires all its shots, or every cell left when there are fewer
+        int shots = game.getShotsPerTurn();
+        if (rows.length > shots || rows.length < shots && rows.length != openCells(target)) {
+            connection.send(Protocol.ERROR, Protocol.WRONG_SHOT_COUNT);
+            return;
+        }
+        int[] cells = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] >= rules.getRows() || cols[i] >= rules.getCols()) {
+                connection.send(Protocol.ERROR, Protocol.BAD_REQUEST);
+                return;
+            }
+            cells[i] = rows[i] * rules.getCols() + cols[i];
+            if (target.getBoard().isShot(rows[i], cols[i]) || indexOf(cells, i, cells[i]) >= 0) {
+                connection.send(Protocol.ERROR, Protocol.ALREADY_SHOT);
+                return;
+            }
+        }
+        long result = game.fireBatch(cells);
+        for (Connection seatConnection : seats) {
+            if (batched) {
+                seatConnection.sendSalvo(seat, rows, cols, result);
+            } else {
+                seatConnection.sendShot(seat, rows[0], cols[0], Salvo.isSunk(result, 0) ? Protocol.SUNK
+                        : Salvo.isHit(result, 0) ? Protocol.HIT : Protocol.MISS);
+            }
+        }
+        if (game.isGameOver()) {
+            finish(seat, Protocol.FLEET_DESTROYED);
+        } else {
+            game.nextTurn();
+            turn ^= 1;
+        }
+    }
+
+    private static long openCells(Player target) {
+        RuleSet rules = target.getRules();
+        return (long) rules.getRows() * rules.getCols() - target.getBoard().getShotCells().length;
+    }
+
+    private static int indexOf(int[] cells, int length, int cell) {
+        for (int i = 0; i < length; i++) {
+            if (cells[i] == cell)
+                return i;
+        }
+        return -1;
+    }
+
+    // The remaining player wins by default
+    synchronized void leave(int seat) {
+        if (!over)
+            finish(1 - seat, Protocol.OPPONENT_LEFT);
+    }
+
+    private void finish(int winner, int reason) {
+        over = true;
+        for (Connection connection : seats) {
+            connection.send(Protocol.GAME_OVER, winner, reason);
+            connection.join(null, 0);
+        }
+    }
+}
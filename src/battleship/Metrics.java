@@ -0,0 +1,105 @@
+package battleship;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process counters and histograms for where the time of a turn goes.
+// Off unless the JVM runs with -Dbattleship.metrics=true, and then printed
+// in text form at exit, to the file named by -Dbattleship.metrics.file or
+// to standard error. The JFR events in FlightEvents cover the same paths and
+// need no flag, only a recording.
+//
+// Names are dotted, with the unit last: game.fire.nanos, game.fire.bytes.
+public class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("battleship.metrics");
+
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    static {
+        if (ENABLED)
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::dump, "battleship-metrics"));
+    }
+
+    private Metrics() {
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!ENABLED || !(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+            return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ? threads
+                : null;
+    }
+
+    // Looked up once and kept in a static final by the code that records
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, Histogram::new);
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public static void increment(LongAdder counter) {
+        if (ENABLED)
+            counter.increment();
+    }
+
+    // A time reading for Histogram.recordSince, or 0 when disabled
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Bytes allocated so far by the calling thread, or -1 when that is not
+    // measured; for Histogram.recordAllocatedSince
+    public static long allocated() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // One line a metric, sorted by name:
+    // counter player.placement.rejected 3
+    // histogram game.fire.nanos count=120 mean=412.5 p50=383 p99=1791 max=20480
+    public static void export(Writer out) {
+        PrintWriter print = new PrintWriter(out);
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            print.printf("counter %s %d%n", entry.getKey(), entry.getValue().sum());
+        }
+        for (Histogram histogram : new TreeMap<>(HISTOGRAMS).values()) {
+            print.printf("histogram %s count=%d mean=%.1f p50=%d p99=%d max=%d%n", histogram.getName(),
+                    histogram.getCount(), histogram.getMean(), histogram.getPercentile(0.5),
+                    histogram.getPercentile(0.99), histogram.getMax());
+        }
+        print.flush();
+        if (print.checkError())
+            throw new UncheckedIOException(new IOException("Could not write the metrics"));
+    }
+
+    public static void reset() {
+        COUNTERS.values().forEach(LongAdder::reset);
+        HISTOGRAMS.values().forEach(Histogram::reset);
+    }
+
+    private static void dump() {
+        String file = System.getProperty("battleship.metrics.file");
+        if (file == null) {
+            export(new PrintWriter(System.err));
+            return;
+        }
+        try (Writer out = new FileWriter(file)) {
+            export(out);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Could not write the metrics to " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package battleship;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Fires at the cell most likely to hold a ship, estimated from random fleet
+// layouts consistent with the shots so far, every legal layout being equally
+// likely beforehand as FleetGenerator draws them.
+//
+// A layout is drawn in two parts. First each open hit, lowest cell first, is
+// covered with one of the placements that can cover it, alongside the
+// placements before it; then the other pieces are drawn from the placements
+// clear of every miss, hit and sunk ship, largest first, and the layout is
+// dropped if any two of them touch or overlap. The first part favours layouts
+// with few ways to cover the hits, so each layout counts with the inverse of
+// its chance to be drawn: the number of choices it had in the first part,
+// times the number of ways to draw its free pieces over the orders of
+// identical ones. The weighted counts are then an unbiased estimate of how
+// many layouts put a ship on each cell. Each first part is reused for several
+// draws of the rest.
+//
+// Sampling runs as one task per worker of the fork-join pool, each with its
+// own random stream and count array, added up once all are done. A decision
+// stops at a number of layouts or at a deadline, whichever comes first, so
+// nextShot(millis) answers in time with whatever was sampled by then.
+//
+// Sampled weights can be kept in a PositionCache under the Zobrist key of the
+// shots so far and the sampling settings. Games through the same position,
+// above all the empty board and the first few shots, sample it only once and
+// still break ties between equal cells at random. With a cache the samplers'
+// streams are seeded from that key, so the weights of a position do not
+// depend on which game sampled it first; each decision splits the strategy's
+// own random the same way, hit or miss, so its game goes on the same. A cache
+// belongs to one run, as made by newCache, so no run sees another's results.
+public class MonteCarloStrategy implements ShotStrategy {
+    public static final long DEFAULT_SAMPLES = 20_000;
+
+    private static final int MAX_SIZE = Placements.MAX_SIZE;
+    // Second parts drawn for each first part
+    private static final int DRAWS = 8;
+    // Gives up on a decision after this many draws per layout wanted
+    private static final int MAX_DRAWS_PER_SAMPLE = 1000;
+    // Placements whose footprint contains the cell
+    private static final int[][] COVERING = new int[BitBoard.CELLS][];
+    private static final int MAX_COVERING;
+
+    static {
+        int max = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int[] touching = Placements.touching(cell);
+            int[] covering = new int[touching.length];
+            int n = 0;
+            for (int id : touching) {
+                if (Placements.contains(Placements.footLo(id), Placements.footHi(id), cell))
+                    covering[n++] = id;
+            }
+            COVERING[cell] = Arrays.copyOf(covering, n);
+            max = Math.max(max, n);
+        }
+        MAX_COVERING = max;
+    }
+
+    private final long samples;
+    private final long budgetMillis;
+    private final ForkJoinPool pool;
+    private final PositionCache<double[]> cache;
+    private final long settingsKey;
+    private final HeatmapStrategy heatmap = new HeatmapStrategy();
+    private final int[] afloat = new int[MAX_SIZE + 1];
+    private SplittableRandom random;
+    private boolean noTouching;
+    private long key;
+    private long shotLo, shotHi;
+    private long hitLo, hitHi;
+    private long sunkLo, sunkHi;
+
+    // What the samplers read, rebuilt after shots
+    private boolean stale;
+    private long openLo, openHi;
+    private final boolean[] usable = new boolean[Placements.COUNT]; // may cover an open hit
+    private final int[][] free = new int[MAX_SIZE + 1][]; // clear of all shots, by size
+    private final int[] freeCount = new int[MAX_SIZE + 1];
+
+    private long lastSamples;
+    private long lastNanos;
+
+    public MonteCarloStrategy() {
+        this(DEFAULT_SAMPLES, 0);
+    }
+
+    // Each nextShot() samples that many layouts, or for the budget if it is
+    // above 0 and runs out first
+    public MonteCarloStrategy(long samples, long budgetMillis) {
+        this(samples, budgetMillis, ForkJoinPool.commonPool());
+    }
+
+    public MonteCarloStrategy(long samples, long budgetMillis, ForkJoinPool pool) {
+        this(samples, budgetMillis, pool, null);
+    }
+
+    // cache may be null to sample every decision afresh
+    public MonteCarloStrategy(long samples, long budgetMillis, ForkJoinPool pool, PositionCache<double[]> cache) {
+        if (samples < 1 || budgetMillis < 0)
+            throw new IllegalArgumentException("Need samples above 0 and a budget of 0 or more");
+        this.samples = samples;
+        this.budgetMillis = budgetMillis;
+        this.pool = pool;
+        this.cache = cache;
+        settingsKey = Zobrist.mix(samples ^ budgetMillis << 40);
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            free[size] = new int[Placements.ofSize(size).length];
+        }
+    }
+
+    // For the strategies of one simulation or tournament, so sampled
+    // positions carry over between its games
+    public static PositionCache<double[]> newCache() {
+        return new PositionCache<>("montecarlo", 1 << 10);
+    }
+
+    @Override
+    public String getName() {
+        return "montecarlo";
+    }
+
+    @Override
+    public void newGame(RuleSet rules, SplittableRandom random) {
+        heatmap.newGame(rules, random.split());
+        this.random = random;
+        noTouching = rules.isNoTouching();
+        Arrays.fill(afloat, 0);
+        for (int size : rules.getFleet()) {
+            afloat[size]++;
+        }
+        shotLo = shotHi = hitLo = hitHi = sunkLo = sunkHi = 0;
+        key = Zobrist.rules(rules);
+        stale = true;
+    }
+
+    @Override
+    public int nextShot() {
+        if (budgetMillis == 0)
+            return decide(false, 0, samples, settingsKey);
+        return decide(true, System.nanoTime() + budgetMillis * 1_000_000, samples, settingsKey);
+    }
+
+    // Samples until the budget runs out and fires at the likeliest cell by then
+    public int nextShot(long budgetMillis) {
+        return decide(true, System.nanoTime() + budgetMillis * 1_000_000, Long.MAX_VALUE, Zobrist.mix(~budgetMillis));
+    }
+
+    @Override
+    public void shotResult(int index, boolean hit, Piece sunk) {
+        heatmap.shotResult(index, hit, sunk);
+        shotLo |= BitBoard.lo(index);
+        shotHi |= BitBoard.hi(index);
+        key ^= Zobrist.shot(index, hit);
+        if (hit) {
+            hitLo |= BitBoard.lo(index);
+            hitHi |= BitBoard.hi(index);
+        }
+        if (sunk != null) {
+            sunkLo |= sunk.getMaskLo();
+            sunkHi |= sunk.getMaskHi();
+            afloat[sunk.getSize()]--;
+            key ^= Zobrist.sunk(sunk, BitBoard.SIZE);
+        }
+        stale = true;
+    }
+
+    // Layouts sampled for the last decision, 0 if it came from the cache, and
+    // the time it took
+    public long getLastSamples() {
+        return lastSamples;
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    private int decide(boolean timed, long deadline, long quota, long settings) {
+        long start = System.nanoTime();
+        SplittableRandom streams = random.split();
+        double[] weight = cache == null ? null : cache.get(key ^ settings);
+        if (weight == null) {
+            if (cache != null)
+                streams = new SplittableRandom(Zobrist.mix(key ^ settings));
+            weight = sample(streams, timed, deadline, quota);
+            if (cache != null && lastSamples > 0)
+                cache.put(key ^ settings, weight);
+        } else {
+            lastSamples = 0;
+        }
+        int best = -1;
+        int ties = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (Placements.contains(shotLo, shotHi, cell) || weight[cell] == 0)
+                continue;
+            if (best < 0 || weight[cell] > weight[best]) {
+                best = cell;
+                ties = 1;
+            } else if (weight[cell] == weight[best] && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        lastNanos = System.nanoTime() - start;
+        // Nothing sampled in time: the heatmap is the answer so far
+        return best >= 0 ? best : heatmap.nextShot();
+    }
+
+    // Weighted layouts with a ship on each cell, summed over the samplers
+    private double[] sample(SplittableRandom streams, boolean timed, long deadline, long quota) {
+        prepare();
+        int tasks = pool.getParallelism();
+        Sampler[] samplers = new Sampler[tasks];
+        for (int i = 0; i < tasks; i++) {
+            long share = quota == Long.MAX_VALUE ? quota : quota / tasks + (i < quota % tasks ? 1 : 0);
+            samplers[i] = new Sampler(streams.split(), share, timed, deadline);
+        }
+        pool.submit(() -> ForkJoinTask.invokeAll(samplers)).join();
+        double[] weight = new double[BitBoard.CELLS];
+        long sampled = 0;
+        for (Sampler sampler : samplers) {
+            sampled += sampler.samples;
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                weight[cell] += sampler.weight[cell];
+            }
+        }
+        lastSamples = sampled;
+        return weight;
+    }
+
+    private void prepare() {
+        if (!stale)
+            return;
+        stale = false;
+        openLo = hitLo & ~sunkLo;
+        openHi = hitHi & ~sunkHi;
+        long blockedLo = (shotLo & ~hitLo) | sunkLo;
+        long blockedHi = (shotHi & ~hitHi) | sunkHi;
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            int n = 0;
+            for (int id : Placements.ofSize(size)) {
+                long footLo = Placements.footLo(id);
+                long footHi = Placements.footHi(id);
+                boolean clear = afloat[size] > 0 && ((footLo & blockedLo) | (footHi & blockedHi)) == 0
+                        && (!noTouching || ((Placements.haloLo(id) & sunkLo) | (Placements.haloHi(id) & sunkHi)) == 0);
+                // A ship hit on every cell would have been reported sunk
+                usable[id] = clear && ((footLo & ~hitLo) | (footHi & ~hitHi)) != 0;
+                if (clear && ((footLo & hitLo) | (footHi & hitHi)) == 0)
+                    free[size][n++] = id;
+            }
+            freeCount[size] = n;
+        }
+    }
+
+    private long reachLo(int id) {
+        return noTouching ? Placements.haloLo(id) : Placements.footLo(id);
+    }
+
+    private long reachHi(int id) {
+        return noTouching ? Placements.haloHi(id) : Placements.footHi(id);
+    }
+
+    @SuppressWarnings("serial")
+    private class Sampler extends RecursiveAction {
+        private final SplittableRandom random;
+        private final long quota;
+        private final boolean timed;
+        private final long deadline;
+        // Weighted layouts with a ship on each cell
+        final double[] weight = new double[BitBoard.CELLS];
+        long samples;
+
+        Sampler(SplittableRandom random, long quota, boolean timed, long deadline) {
+            this.random = random;
+            this.quota = quota;
+            this.timed = timed;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            int[] left = new int[MAX_SIZE + 1];
+            int[] options = new int[MAX_COVERING];
+            long maxDraws = quota > Long.MAX_VALUE / MAX_DRAWS_PER_SAMPLE ? Long.MAX_VALUE
+                    : quota * MAX_DRAWS_PER_SAMPLE;
+            long draws = 0;
+            int attempts = 0;
+            attempt: while (samples < quota && draws < maxDraws) {
+                if (timed && (++attempts & 0x1F) == 0 && System.nanoTime() - deadline >= 0)
+                    return;
+                draws++;
+                System.arraycopy(afloat, 0, left, 0, left.length);
+                // Cover the open hits
+                long shipLo = 0;
+                long shipHi = 0;
+                long takenLo = 0; // cells later pieces may not cover
+                long takenHi = 0;
+                double w = 1;
+                long uncoveredLo = openLo;
+                long uncoveredHi = openHi;
+                while ((uncoveredLo | uncoveredHi) != 0) {
+                    int cell = uncoveredLo != 0 ? Long.numberOfTrailingZeros(uncoveredLo)
+                            : 64 + Long.numberOfTrailingZeros(uncoveredHi);
+                    int n = 0;
+                    for (int id : COVERING[cell]) {
+                        if (usable[id] && left[Placements.size(id)] > 0
+                                && ((Placements.footLo(id) & takenLo) | (Placements.footHi(id) & takenHi)) == 0)
+                            options[n++] = id;
+                    }
+                    if (n == 0)
+                        continue attempt;
+                    int id = options[random.nextInt(n)];
+                    w *= n;
+                    left[Placements.size(id)]--;
+                    shipLo |= Placements.footLo(id);
+                    shipHi |= Placements.footHi(id);
+                    takenLo |= reachLo(id);
+                    takenHi |= reachHi(id);
+                    uncoveredLo &= ~shipLo;
+                    uncoveredHi &= ~shipHi;
+                }
+                for (int size = 1; size <= MAX_SIZE; size++) {
+                    for (int i = 1; i <= left[size]; i++) {
+                        if (freeCount[size] == 0)
+                            continue attempt;
+                        w *= (double) freeCount[size] / i;
+                    }
+                }
+                // Draw the rest, largest first
+                draw: for (int d = 0; d < DRAWS && samples < quota; d++, draws++) {
+                    long lo = shipLo;
+                    long hi = shipHi;
+                    long blockedLo = takenLo;
+                    long blockedHi = takenHi;
+                    for (int size = MAX_SIZE; size >= 1; size--) {
+                        for (int i = 0; i < left[size]; i++) {
+                            int id = free[size][random.nextInt(freeCount[size])];
+                            if (((Placements.footLo(id) & blockedLo) | (Placements.footHi(id) & blockedHi)) != 0)
+                                continue draw;
+                            lo |= Placements.footLo(id);
+                            hi |= Placements.footHi(id);
+                            blockedLo |= reachLo(id);
+                            blockedHi |= reachHi(id);
+                        }
+                    }
+                    samples++;
+                    for (; lo != 0; lo &= lo - 1) {
+                        weight[Long.numberOfTrailingZeros(lo)] += w;
+                    }
+                    for (; hi != 0; hi &= hi - 1) {
+                        weight[64 + Long.numberOfTrailingZeros(hi)] += w;
+                    }
+                }
+            }
+        }
+    }
+
+    // Usage: MonteCarloStrategy [millis per shot] [games]
+    // Plays games against random layouts, sampling for the given time per
+    // shot, and reports the layouts sampled per second and shots per game.
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 50;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        RuleSet rules = RuleSet.STANDARD;
+        FleetGenerator generator = new FleetGenerator(rules);
+        SplittableRandom random = new SplittableRandom(42);
+        MonteCarloStrategy strategy = new MonteCarloStrategy();
+        long sampled = 0;
+        long nanos = 0;
+        long shots = 0;
+        for (int g = 0; g < games; g++) {
+            Player target = new Player("target", rules);
+            generator.fill(target, rules.newFleet(), random);
+            strategy.newGame(rules, random.split());
+            while (!target.allPiecesDestroyed()) {
+                int cell = strategy.nextShot(millis);
+                sampled += strategy.getLastSamples();
+                nanos += strategy.getLastNanos();
+                shots++;
+                int row = cell / BitBoard.SIZE;
+                int col = cell % BitBoard.SIZE;
+                boolean hit = target.receiveShot(row, col);
+                Piece piece = hit ? target.getPieceAt(row, col) : null;
+                strategy.shotResult(cell, hit, piece != null && piece.isDestroyed() ? piece : null);
+            }
+        }
+        System.out.printf("%d games, %.2f shots per game, %,.0f layouts per second on %d workers%n", games,
+                (double) shots / games, sampled * 1e9 / nanos, strategy.pool.getParallelism());
+    }
+}
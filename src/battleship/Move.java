@@ -0,0 +1,78 @@
+package battleship;
+
+// Journal entries of a Game, packed into a long:
+//   bits 0-1 kind, bit 2 player, bit 3 horizontal, then 20 bits each of size, row and col.
+// The player of a SHOT is the target; of a PLACE or REMOVE, the owner.
+public final class Move {
+    public static final int SHOT = 0;
+    public static final int PLACE = 1;
+    public static final int REMOVE = 2; // a piece taken back off the board
+    public static final int TURN = 3;
+
+    public static final long NONE = -1L;
+    public static final int MAX_COORD = (1 << 20) - 1;
+
+    private static final int FIELD = 20;
+    private static final long MASK = (1L << FIELD) - 1;
+
+    private Move() {
+    }
+
+    private static long of(int kind, int player, boolean isHorizontal, int size, int row, int col) {
+        return kind | (long) player << 2 | (isHorizontal ? 1L << 3 : 0) | (long) size << 4
+                | (long) row << (4 + FIELD) | (long) col << (4 + 2 * FIELD);
+    }
+
+    public static long shot(int target, int row, int col) {
+        return of(SHOT, target, false, 0, row, col);
+    }
+
+    public static long place(int player, Piece piece) {
+        return of(PLACE, player, piece.isHorizontal(), piece.getSize(), piece.getStartRow(), piece.getStartCol());
+    }
+
+    public static long remove(int player, Piece piece) {
+        return of(REMOVE, player, piece.isHorizontal(), piece.getSize(), piece.getStartRow(), piece.getStartCol());
+    }
+
+    public static long turn() {
+        return TURN;
+    }
+
+    public static int kind(long move) {
+        return (int) move & 3;
+    }
+
+    public static int player(long move) {
+        return (int) (move >>> 2) & 1;
+    }
+
+    public static boolean isHorizontal(long move) {
+        return (move & 1L << 3) != 0;
+    }
+
+    public static int size(long move) {
+        return (int) (move >>> 4 & MASK);
+    }
+
+    public static int row(long move) {
+        return (int) (move >>> (4 + FIELD) & MASK);
+    }
+
+    public static int col(long move) {
+        return (int) (move >>> (4 + 2 * FIELD) & MASK);
+    }
+
+    public static String toString(long move) {
+        switch (kind(move)) {
+            case SHOT:
+                return "shot at player " + player(move) + " " + row(move) + "," + col(move);
+            case PLACE:
+            case REMOVE:
+                return (kind(move) == PLACE ? "place " : "remove ") + size(move) + " for player " + player(move)
+                        + " at " + row(move) + "," + col(move) + (isHorizontal(move) ? " horizontal" : " vertical");
+            default:
+                return "turn";
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package battleship;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Append-only binary log of finished 9x9 games. A game is one run of bytes:
+//
+//   GAME_START
+//   placements  2 bytes each: PLACEMENT + cell, then player << 7 | horizontal << 6 | size
+//   shots       1 byte each:  target * 81 + cell
+//   GAME_END, winner
+//
+// Games never straddle a BLOCK boundary (the gap is PADDING bytes), so a
+// reader can start at any block and split a file across threads.
+public class MoveLog implements AutoCloseable {
+    public static final int BLOCK = 64 * 1024;
+
+    public static final int SHOT_LIMIT = 2 * BitBoard.CELLS; // shot bytes are below this
+    public static final int PLACEMENT = SHOT_LIMIT; // up to PLACEMENT + 80
+    public static final int GAME_START = 0xFD;
+    public static final int GAME_END = 0xFE;
+    public static final int PADDING = 0xFF;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK);
+    private long position; // file offset of the buffer's first byte
+    private long games;
+
+    public MoveLog(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        position = channel.size();
+        channel.position(position);
+        // Keep the block grid aligned after a torn final write
+        int tail = (int) (position % BLOCK);
+        if (tail != 0)
+            pad(BLOCK - tail);
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    // Appends one encoded game; safe to call from several threads
+    public synchronized void append(byte[] game, int length) throws IOException {
+        if (length > BLOCK)
+            throw new IllegalArgumentException("Game of " + length + " bytes does not fit a block");
+        int offset = (int) ((position + buffer.position()) % BLOCK);
+        if (offset + length > BLOCK)
+            pad(BLOCK - offset);
+        if (buffer.remaining() < length)
+            writeBuffer();
+        buffer.put(game, 0, length);
+        games++;
+    }
+
+    private void pad(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (!buffer.hasRemaining())
+                writeBuffer();
+            buffer.put((byte) PADDING);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public synchronized void flush() throws IOException {
+        writeBuffer();
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writeBuffer();
+        channel.close();
+    }
+}
@@ -0,0 +1,141 @@
+package battleship;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Scans a MoveLog through memory-mapped windows of whole blocks and hands the
+// raw moves to a Visitor; nothing is allocated per game.
+public class MoveLogReader implements AutoCloseable {
+    private static final long WINDOW = 16384L * MoveLog.BLOCK; // 1 GiB
+
+    public interface Visitor {
+        void gameStart(long offset);
+
+        void placement(int player, int cell, boolean isHorizontal, int size);
+
+        void shot(int target, int cell);
+
+        void gameEnd(int winner);
+    }
+
+    private final FileChannel channel;
+
+    public MoveLogReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    public long getBlockCount() throws IOException {
+        return (channel.size() + MoveLog.BLOCK - 1) / MoveLog.BLOCK;
+    }
+
+    public void scan(Visitor visitor) throws IOException {
+        scan(visitor, 0, getBlockCount());
+    }
+
+    // Blocks [from, to) only, so ranges can be scanned in parallel
+    public void scan(Visitor visitor, long fromBlock, long toBlock) throws IOException {
+        long start = fromBlock * MoveLog.BLOCK;
+        long end = Math.min(toBlock * MoveLog.BLOCK, channel.size());
+        while (start < end) {
+            long size = Math.min(WINDOW, end - start);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            scanWindow(window, start, visitor);
+            start += size;
+        }
+    }
+
+    private static void scanWindow(MappedByteBuffer window, long base, Visitor visitor) {
+        int limit = window.limit();
+        int i = 0;
+        while (i < limit) {
+            int b = window.get(i) & 0xFF;
+            if (b < MoveLog.SHOT_LIMIT) {
+                visitor.shot(b / BitBoard.CELLS, b % BitBoard.CELLS);
+                i++;
+            } else if (b < MoveLog.PLACEMENT + BitBoard.CELLS) {
+                if (i + 1 >= limit)
+                    throw corrupt(base + i);
+                int info = window.get(i + 1) & 0xFF;
+                visitor.placement(info >>> 7, b - MoveLog.PLACEMENT, (info & 0x40) != 0, info & 0x3F);
+                i += 2;
+            } else if (b == MoveLog.GAME_START) {
+                visitor.gameStart(base + i);
+                i++;
+            } else if (b == MoveLog.GAME_END) {
+                if (i + 1 >= limit)
+                    throw corrupt(base + i);
+                visitor.gameEnd(window.get(i + 1));
+                i += 2;
+            } else if (b == MoveLog.PADDING) {
+                i++;
+            } else {
+                throw corrupt(base + i);
+            }
+        }
+    }
+
+    private static IllegalStateException corrupt(long offset) {
+        return new IllegalStateException("Corrupt move log at offset " + offset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Rebuilds every game on a Game and checks that the logged winner is the
+    // one the moves produce.
+    public static class Audit implements Visitor {
+        private Game game;
+        private Player[] players;
+        private long games;
+        private long shots;
+        private long failures;
+
+        @Override
+        public void gameStart(long offset) {
+            game = new Game("player1", "player2");
+            players = new Player[] { game.getCurrentPlayer(), game.getOpponent() };
+        }
+
+        @Override
+        public void placement(int player, int cell, boolean isHorizontal, int size) {
+            if (!players[player].placePiece(Piece.ofSize(size), cell / BitBoard.SIZE, cell % BitBoard.SIZE,
+                    isHorizontal))
+                failures++;
+        }
+
+        @Override
+        public void shot(int target, int cell) {
+            players[target].receiveShot(cell / BitBoard.SIZE, cell % BitBoard.SIZE);
+            shots++;
+        }
+
+        @Override
+        public void gameEnd(int winner) {
+            games++;
+            if (!players[1 - winner].allPiecesDestroyed() || players[winner].allPiecesDestroyed())
+                failures++;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, %.2f shots per game, %d failed checks", games,
+                    games == 0 ? 0.0 : (double) shots / games, failures);
+        }
+    }
+
+    // Usage: MoveLogReader <file>
+    public static void main(String[] args) throws IOException {
+        try (MoveLogReader reader = new MoveLogReader(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            Audit audit = new Audit();
+            reader.scan(audit);
+            System.out.printf("%s in %.3f s%n", audit, (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package battleship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+// Runs a computer player's ShotStrategy on a worker thread so the caller's
+// thread (the JavaFX application thread) never waits for a decision.
+//
+// The strategy is confined to the worker: every call to it, results included,
+// is queued there in order, so the strategy itself needs no locking. What it
+// sees of the board is exactly the shot results passed to shotResult. Its
+// next shot only depends on those, so prefetch starts computing it while the
+// human is still choosing. request hands the shot to the delivery executor
+// within the time budget; a strategy still thinking by then is given up on
+// and the best cell of a HeatmapStrategy, kept up to date on the caller's
+// thread, is fired instead. After cancel nothing more is delivered.
+// Strategies are not interruptible, so a search already running finishes on
+// its daemon thread and its answer is dropped.
+//
+// All methods but the constructor are called from one thread, the one the
+// results are delivered on.
+public class MovePipeline {
+    private static final int NONE = -1;
+    private static final Histogram DECISION_NANOS = Metrics.histogram("ai.decision.nanos");
+    private static final Histogram DECISION_BYTES = Metrics.histogram("ai.decision.bytes");
+
+    private final ShotStrategy strategy;
+    private final long budgetMillis;
+    private final Executor delivery;
+    private final HeatmapStrategy fallback = new HeatmapStrategy();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "battleship-ai");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CompletableFuture<Integer> next;
+    private long shotLo;
+    private long shotHi;
+    private int generation;
+    private boolean cancelled;
+
+    // e.g. new MovePipeline(strategy, rules, random, 500, Platform::runLater)
+    public MovePipeline(ShotStrategy strategy, RuleSet rules, SplittableRandom random, long budgetMillis,
+            Executor delivery) {
+        if (!rules.isStandardBoard())
+            throw new IllegalArgumentException("Computer players need the 9x9 board, got " + rules);
+        this.strategy = strategy;
+        this.budgetMillis = budgetMillis;
+        this.delivery = delivery;
+        fallback.newGame(rules, random.split());
+        SplittableRandom strategyRandom = random.split();
+        worker.execute(() -> strategy.newGame(rules, strategyRandom));
+    }
+
+    public ShotStrategy getStrategy() {
+        return strategy;
+    }
+
+    // Starts computing the next shot if it is not already known or underway
+    public void prefetch() {
+        if (next == null && !cancelled)
+            next = CompletableFuture.supplyAsync(this::decide, worker);
+    }
+
+    // On the worker
+    private int decide() {
+        FlightEvents.AiDecision event = new FlightEvents.AiDecision();
+        event.begin();
+        long start = Metrics.start();
+        long allocated = Metrics.allocated();
+        int cell = strategy.nextShot();
+        DECISION_BYTES.recordAllocatedSince(allocated);
+        DECISION_NANOS.recordSince(start);
+        if (event.shouldCommit()) {
+            event.strategy = strategy.getName();
+            event.cell = cell;
+            event.commit();
+        }
+        return cell;
+    }
+
+    // Calls onShot on the delivery executor with the cell to fire at, at most
+    // the time budget from now, unless the pipeline is cancelled first. The
+    // shot's outcome must then be reported with shotResult.
+    public void request(IntConsumer onShot) {
+        prefetch();
+        if (cancelled)
+            return;
+        int asked = generation;
+        next.copy()
+                .exceptionally(e -> NONE)
+                .completeOnTimeout(NONE, budgetMillis, TimeUnit.MILLISECONDS)
+                .thenAcceptAsync(cell -> {
+                    if (cancelled || asked != generation)
+                        return;
+                    onShot.accept(cell == NONE || isShot(cell) ? fallback.nextShot() : cell);
+                }, delivery);
+    }
+
+    // The outcome of a shot of the computer player; sunk is the piece sunk by
+    // the shot, or null
+    public void shotResult(int cell, boolean hit, Piece sunk) {
+        if (cancelled)
+            return;
+        generation++;
+        next = null;
+        shotLo |= BitBoard.lo(cell);
+        shotHi |= BitBoard.hi(cell);
+        fallback.shotResult(cell, hit, sunk);
+        worker.execute(() -> strategy.shotResult(cell, hit, sunk));
+    }
+
+    // Drops pending requests and stops the worker, e.g. when the game is reset
+    public void cancel() {
+        cancelled = true;
+        worker.shutdownNow();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private boolean isShot(int cell) {
+        return ((BitBoard.lo(cell) & shotLo) | (BitBoard.hi(cell) & shotHi)) != 0;
+    }
+}
@@ -6,50 +6,102 @@ public abstract class Piece {
     protected int startRow;
     protected int startCol;
     protected boolean[] hits;
+    protected int remaining;
+    protected long maskLo;
+    protected long maskHi;
 
     public Piece(int size) {
         this.size = size;
         this.isHorizontal = true;
         this.hits = new boolean[size];
+        this.remaining = size;
     }
 
     public void setPosition(int row, int col, boolean isHorizontal) {
         this.startRow = row;
         this.startCol = col;
         this.isHorizontal = isHorizontal;
+        maskLo = 0;
+        maskHi = 0;
     }
 
-    public boolean occupies(int row, int col) {
-        for (int i = 0; i < size; i++) {
-            int r = isHorizontal ? startRow : startRow + i;
-            int c = isHorizontal ? startCol + i : startCol;
-            if (r == row && c == col)
-                return true;
+    // Set by BitBoard when the piece is placed on a 9x9 board
+    void setMask(long lo, long hi) {
+        maskLo = lo;
+        maskHi = hi;
+    }
+
+    public static Piece ofSize(int size) {
+        switch (size) {
+            case 3:
+                return new Battleship();
+            case 2:
+                return new Destroyer();
+            case 1:
+                return new Submarine();
+            default:
+                return new Ship(size);
         }
-        return false;
+    }
+
+    public boolean occupies(int row, int col) {
+        if (isHorizontal)
+            return row == startRow && col >= startCol && col < startCol + size;
+        return col == startCol && row >= startRow && row < startRow + size;
     }
 
     public boolean hit(int row, int col) {
-        for (int i = 0; i < size; i++) {
-            int r = isHorizontal ? startRow : startRow + i;
-            int c = isHorizontal ? startCol + i : startCol;
-            if (r == row && c == col) {
-                hits[i] = true;
-                return true;
-            }
+        if (!occupies(row, col))
+            return false;
+        int i = isHorizontal ? col - startCol : row - startRow;
+        if (!hits[i]) {
+            hits[i] = true;
+            remaining--;
         }
-        return false;
+        return true;
     }
 
-    public boolean isDestroyed() {
-        for (boolean h : hits) {
-            if (!h)
-                return false;
+    // Reverses hit for undo
+    public void unhit(int row, int col) {
+        if (!occupies(row, col))
+            return;
+        int i = isHorizontal ? col - startCol : row - startRow;
+        if (hits[i]) {
+            hits[i] = false;
+            remaining++;
         }
-        return true;
+    }
+
+    public boolean isDestroyed() {
+        return remaining == 0;
+    }
+
+    public int getRemaining() {
+        return remaining;
     }
 
     public int getSize() {
         return size;
     }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getStartCol() {
+        return startCol;
+    }
+
+    public boolean isHorizontal() {
+        return isHorizontal;
+    }
+
+    // BitBoard footprint; zero on boards other than 9x9
+    public long getMaskLo() {
+        return maskLo;
+    }
+
+    public long getMaskHi() {
+        return maskHi;
+    }
 }
@@ -0,0 +1,139 @@
+package battleship;
+
+import java.util.Arrays;
+
+// Lookup tables for every (size, row, col, orientation) on the 9x9 board,
+// built once at class load. The halo is the footprint plus its one-cell border,
+// so a placement is legal iff it is in bounds and its halo misses every ship.
+public final class Placements {
+    public static final int MAX_SIZE = BitBoard.SIZE;
+    public static final int COUNT = (MAX_SIZE + 1) * BitBoard.CELLS * 2;
+
+    private static final long[] FOOT_LO = new long[COUNT];
+    private static final long[] FOOT_HI = new long[COUNT];
+    private static final long[] HALO_LO = new long[COUNT];
+    private static final long[] HALO_HI = new long[COUNT];
+    private static final int[][] CELLS = new int[COUNT][];
+    private static final int[][] OF_SIZE = new int[MAX_SIZE + 1][];
+    private static final int[][] TOUCHING = new int[BitBoard.CELLS][];
+
+    static {
+        int[] touchCount = new int[BitBoard.CELLS];
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            int[] distinct = new int[2 * BitBoard.CELLS];
+            int n = 0;
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                for (int o = 0; o < 2; o++) {
+                    boolean horizontal = o == 0;
+                    int row = cell / BitBoard.SIZE;
+                    int col = cell % BitBoard.SIZE;
+                    int endRow = horizontal ? row : row + size - 1;
+                    int endCol = horizontal ? col + size - 1 : col;
+                    if (endRow >= BitBoard.SIZE || endCol >= BitBoard.SIZE)
+                        continue;
+                    int id = id(size, row, col, horizontal);
+                    int[] cells = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        cells[i] = horizontal ? BitBoard.index(row, col + i) : BitBoard.index(row + i, col);
+                        FOOT_LO[id] |= BitBoard.lo(cells[i]);
+                        FOOT_HI[id] |= BitBoard.hi(cells[i]);
+                    }
+                    CELLS[id] = cells;
+                    for (int r = Math.max(0, row - 1); r <= Math.min(BitBoard.SIZE - 1, endRow + 1); r++) {
+                        for (int c = Math.max(0, col - 1); c <= Math.min(BitBoard.SIZE - 1, endCol + 1); c++) {
+                            int index = BitBoard.index(r, c);
+                            HALO_LO[id] |= BitBoard.lo(index);
+                            HALO_HI[id] |= BitBoard.hi(index);
+                        }
+                    }
+                    // A size-1 piece is the same placement in both orientations
+                    if (size > 1 || horizontal) {
+                        distinct[n++] = id;
+                        for (int index = 0; index < BitBoard.CELLS; index++) {
+                            if (contains(HALO_LO[id], HALO_HI[id], index))
+                                touchCount[index]++;
+                        }
+                    }
+                }
+            }
+            OF_SIZE[size] = Arrays.copyOf(distinct, n);
+        }
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            TOUCHING[cell] = new int[touchCount[cell]];
+            touchCount[cell] = 0;
+        }
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            for (int id : OF_SIZE[size]) {
+                for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                    if (contains(HALO_LO[id], HALO_HI[id], cell))
+                        TOUCHING[cell][touchCount[cell]++] = id;
+                }
+            }
+        }
+    }
+
+    private Placements() {
+    }
+
+    public static int id(int size, int row, int col, boolean horizontal) {
+        return ((size * BitBoard.CELLS + BitBoard.index(row, col)) << 1) | (horizontal ? 0 : 1);
+    }
+
+    // Id of an in-bounds placement, or -1
+    public static int lookup(int size, int row, int col, boolean horizontal) {
+        if (size < 1 || size > MAX_SIZE || row < 0 || col < 0 || row >= BitBoard.SIZE || col >= BitBoard.SIZE)
+            return -1;
+        int id = id(size, row, col, horizontal);
+        return CELLS[id] != null ? id : -1;
+    }
+
+    public static boolean inBounds(int id) {
+        return id >= 0 && id < COUNT && CELLS[id] != null;
+    }
+
+    public static int size(int id) {
+        return (id >> 1) / BitBoard.CELLS;
+    }
+
+    public static int cell(int id) {
+        return (id >> 1) % BitBoard.CELLS;
+    }
+
+    public static boolean isHorizontal(int id) {
+        return (id & 1) == 0;
+    }
+
+    public static long footLo(int id) {
+        return FOOT_LO[id];
+    }
+
+    public static long footHi(int id) {
+        return FOOT_HI[id];
+    }
+
+    public static long haloLo(int id) {
+        return HALO_LO[id];
+    }
+
+    public static long haloHi(int id) {
+        return HALO_HI[id];
+    }
+
+    public static int[] cells(int id) {
+        return CELLS[id];
+    }
+
+    // In-bounds placements of a size, counting a size-1 piece only once
+    public static int[] ofSize(int size) {
+        return OF_SIZE[size];
+    }
+
+    // Distinct placements whose halo contains the cell
+    public static int[] touching(int cell) {
+        return TOUCHING[cell];
+    }
+
+    public static boolean contains(long lo, long hi, int cell) {
+        return ((lo & BitBoard.lo(cell)) | (hi & BitBoard.hi(cell))) != 0;
+    }
+}
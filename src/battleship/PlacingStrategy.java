@@ -0,0 +1,102 @@
+package battleship;
+
+import java.util.SplittableRandom;
+
+// A ShotStrategy paired with a style of fleet placement. The styles other
+// than RANDOM draw a few uniformly random layouts and keep the one with the
+// most (EDGES) or fewest (CENTER) ship cells on the border of the board.
+public class PlacingStrategy implements Strategy {
+    public enum Style {
+        RANDOM, EDGES, CENTER;
+
+        static Style named(String name) {
+            return valueOf(name.toUpperCase());
+        }
+    }
+
+    private static final int DRAWS = 8;
+    // Ship cells of a layout on the outermost rows and columns
+    private static final long BORDER_LO;
+    private static final long BORDER_HI;
+
+    static {
+        long lo = 0;
+        long hi = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int row = cell / BitBoard.SIZE;
+            int col = cell % BitBoard.SIZE;
+            if (row == 0 || col == 0 || row == BitBoard.SIZE - 1 || col == BitBoard.SIZE - 1) {
+                lo |= BitBoard.lo(cell);
+                hi |= BitBoard.hi(cell);
+            }
+        }
+        BORDER_LO = lo;
+        BORDER_HI = hi;
+    }
+
+    private final ShotStrategy shots;
+    private final Style style;
+    private FleetGenerator generator;
+
+    public PlacingStrategy(ShotStrategy shots, Style style) {
+        this.shots = shots;
+        this.style = style;
+    }
+
+    @Override
+    public String getName() {
+        return style == Style.RANDOM ? shots.getName() : shots.getName() + "+" + style.name().toLowerCase();
+    }
+
+    @Override
+    public void placeFleet(Player player, Piece[] fleet, SplittableRandom random) {
+        RuleSet rules = player.getRules();
+        if (generator == null || generator.getRules() != rules)
+            generator = new FleetGenerator(rules);
+        if (style == Style.RANDOM || !rules.isStandardBoard()) {
+            generator.fill(player, fleet, random);
+            return;
+        }
+        int[] best = new int[fleet.length];
+        int[] ids = new int[fleet.length];
+        int bestScore = -1;
+        for (int i = 0; i < DRAWS; i++) {
+            generator.sample(random, ids);
+            int border = 0;
+            for (int id : ids) {
+                border += BitBoard.bitCount(Placements.footLo(id) & BORDER_LO, Placements.footHi(id) & BORDER_HI);
+            }
+            int score = style == Style.EDGES ? border : BitBoard.CELLS - border;
+            if (score > bestScore) {
+                bestScore = score;
+                System.arraycopy(ids, 0, best, 0, ids.length);
+            }
+        }
+        for (int i = 0; i < fleet.length; i++) {
+            int cell = Placements.cell(best[i]);
+            if (!player.placePiece(fleet[i], cell / BitBoard.SIZE, cell % BitBoard.SIZE,
+                    Placements.isHorizontal(best[i])))
+                throw new IllegalStateException("Could not place fleet on " + player.getName());
+        }
+    }
+
+    @Override
+    public void newGame(RuleSet rules, SplittableRandom random) {
+        shots.newGame(rules, random);
+    }
+
+    @Override
+    public int nextShot() {
+        return shots.nextShot();
+    }
+
+    @Override
+    public int nextShots(int[] cells, int count) {
+        return shots.nextShots(cells, count);
+    }
+
+    @Override
+    public void shotResult(int index, boolean hit, Piece sunk) {
+        shots.shotResult(index, hit, sunk);
+    }
+}
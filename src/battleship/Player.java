@@ -2,50 +2,101 @@ package battleship;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Player {
+    private static final int MAX_GRID_CELLS = 1 << 16;
+    private static final Histogram PLACEMENT_NANOS = Metrics.histogram("player.placement.nanos");
+    private static final LongAdder PLACEMENT_REJECTED = Metrics.counter("player.placement.rejected");
+
     private List<Piece> pieces;
+    private RuleSet rules;
+    private Board board;
     private GridCell[][] grid;
     private String name;
+    private int shipsRemaining;
+    private final List<GameListener> listeners = new ArrayList<>();
+    private Game game;
+    private int seat;
 
     public Player(String name) {
+        this(name, RuleSet.STANDARD);
+    }
+
+    public Player(String name, RuleSet rules) {
         this.name = name;
+        this.rules = rules;
         this.pieces = new ArrayList<>();
-        this.grid = new GridCell[9][9];
-        for (int r = 0; r < 9; r++) {
-            for (int c = 0; c < 9; c++) {
-                grid[r][c] = new GridCell(r, c);
-            }
-        }
+        this.board = rules.newBoard();
+    }
+
+    // Changes are journaled by the game from now on
+    void attach(Game game, int seat) {
+        this.game = game;
+        this.seat = seat;
     }
 
     public String getName() {
         return name;
     }
 
+    public RuleSet getRules() {
+        return rules;
+    }
+
     public List<Piece> getPieces() {
         return pieces;
     }
 
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int getShipsRemaining() {
+        return shipsRemaining;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    // Built on first use for the JavaFX layer; the engine only works on the Board.
     public GridCell[][] getGrid() {
+        if (grid == null) {
+            if ((long) rules.getRows() * rules.getCols() > MAX_GRID_CELLS)
+                throw new UnsupportedOperationException("No grid view for a " + rules.getRows() + "x"
+                        + rules.getCols() + " board");
+            grid = new GridCell[rules.getRows()][rules.getCols()];
+            for (int r = 0; r < rules.getRows(); r++) {
+                for (int c = 0; c < rules.getCols(); c++) {
+                    grid[r][c] = new GridCell(this, r, c);
+                }
+            }
+        }
         return grid;
     }
 
     private boolean isValidPlacement(Piece piece, int row, int col, boolean isHorizontal) {
-        // Check boundaries
-        int endRow = isHorizontal ? row : row + piece.getSize() - 1;
-        int endCol = isHorizontal ? col + piece.getSize() - 1 : col;
-        if (endRow >= 9 || endCol >= 9)
-            return false;
-
-        // Check for overlap and adjacent ships
-        for (int r = Math.max(0, row - 1); r <= Math.min(8, endRow + 1); r++) {
-            for (int c = Math.max(0, col - 1); c <= Math.min(8, endCol + 1); c++) {
-                if (grid[r][c].hasPiece())
-                    return false;
-            }
+        FlightEvents.Placement event = new FlightEvents.Placement();
+        event.begin();
+        long start = Metrics.start();
+        boolean valid = board.canPlace(piece.getSize(), row, col, isHorizontal, rules.isNoTouching());
+        PLACEMENT_NANOS.recordSince(start);
+        if (!valid)
+            Metrics.increment(PLACEMENT_REJECTED);
+        if (event.shouldCommit()) {
+            event.size = piece.getSize();
+            event.row = row;
+            event.col = col;
+            event.horizontal = isHorizontal;
+            event.valid = valid;
+            event.commit();
         }
-        return true;
+        return valid;
     }
 
     public boolean placePiece(Piece piece, int row, int col, boolean isHorizontal) {
@@ -54,20 +105,87 @@ public class Player {
         }
 
         piece.setPosition(row, col, isHorizontal);
-        for (int i = 0; i < piece.getSize(); i++) {
-            int r = isHorizontal ? row : row + i;
-            int c = isHorizontal ? col + i : col;
-            grid[r][c].setPiece(piece);
-        }
+        board.addPiece(piece);
         pieces.add(piece);
+        shipsRemaining++;
+        if (game != null)
+            game.record(Move.place(seat, piece));
+        notify(GameEvent.Type.PLACED, row, col, piece);
         return true;
     }
 
-    public boolean allPiecesDestroyed() {
-        for (Piece p : pieces) {
-            if (!p.isDestroyed())
-                return false;
+    // Journaled as one REMOVE per piece, last placed first
+    public void clearPieces() {
+        for (int i = pieces.size() - 1; i >= 0; i--) {
+            Piece piece = pieces.remove(i);
+            board.removePiece(piece);
+            if (game != null)
+                game.record(Move.remove(seat, piece));
+        }
+        board.clearShips();
+        shipsRemaining = 0;
+        notify(GameEvent.Type.FLEET_CLEARED, -1, -1, null);
+    }
+
+    public Piece getPieceAt(int row, int col) {
+        return board.getPieceAt(row, col);
+    }
+
+    // Undo of a placement; the piece is expected to be unhit
+    void removePieceAt(int row, int col) {
+        Piece piece = board.getPieceAt(row, col);
+        if (piece == null)
+            throw new IllegalStateException("No piece at " + row + "," + col);
+        board.removePiece(piece);
+        pieces.remove(piece);
+        shipsRemaining--;
+    }
+
+    // Undo of receiveShot
+    void undoShot(int row, int col) {
+        board.unshoot(row, col);
+        Piece piece = board.getPieceAt(row, col);
+        if (piece != null) {
+            if (piece.isDestroyed())
+                shipsRemaining++;
+            piece.unhit(row, col);
+        }
+    }
+
+    // Returns true only if the shot is new and lands on a ship.
+    public boolean receiveShot(int row, int col) {
+        if (row < 0 || col < 0 || row >= rules.getRows() || col >= rules.getCols())
+            throw new IllegalArgumentException("Shot off the board: " + row + "," + col);
+        if (!board.shoot(row, col))
+            return false;
+        if (game != null)
+            game.record(Move.shot(seat, row, col));
+        Piece piece = board.getPieceAt(row, col);
+        if (piece == null) {
+            notify(GameEvent.Type.MISS, row, col, null);
+            return false;
+        }
+        piece.hit(row, col);
+        notify(GameEvent.Type.HIT, row, col, piece);
+        if (piece.isDestroyed()) {
+            shipsRemaining--;
+            notify(GameEvent.Type.SUNK, row, col, piece);
+            if (shipsRemaining == 0)
+                notify(GameEvent.Type.FLEET_DESTROYED, row, col, piece);
         }
         return true;
     }
+
+    private void notify(GameEvent.Type type, int row, int col, Piece piece) {
+        if (listeners.isEmpty())
+            return;
+        GameEvent event = new GameEvent(type, this, row, col, piece);
+        for (GameListener listener : listeners) {
+            listener.onGameEvent(event);
+        }
+    }
+
+    public boolean allPiecesDestroyed() {
+        return shipsRemaining == 0;
+    }
 }
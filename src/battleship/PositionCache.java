@@ -0,0 +1,98 @@
+package battleship;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of AI results by Zobrist position key, shared without locks by
+// every game and thread. A bucket holds WAYS entries and evicts CLOCK-style:
+// a lookup marks its entry referenced, and the bucket's hand passes over
+// referenced entries once, clearing the mark, before it replaces one. An entry
+// is an immutable (key, value) pair swapped in whole, so a reader never sees
+// one key with another's value. Two threads storing into a full bucket at
+// once may both replace the same entry; one result is then lost, not wrong.
+//
+// Values are shared by every reader and must not be modified once stored.
+public class PositionCache<V> {
+    private static final int WAYS = 4;
+
+    private final AtomicReferenceArray<Entry<V>> entries;
+    private final AtomicIntegerArray hands;
+    private final int mask;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    private static final class Entry<V> {
+        final long key;
+        final V value;
+        volatile boolean referenced;
+
+        Entry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // Counts lookups as cache.<name>.hits and cache.<name>.misses; holds up
+    // to WAYS entries a bucket
+    public PositionCache(String name, int buckets) {
+        if (buckets <= 0 || Integer.bitCount(buckets) != 1)
+            throw new IllegalArgumentException("Buckets must be a power of two: " + buckets);
+        entries = new AtomicReferenceArray<>(buckets * WAYS);
+        hands = new AtomicIntegerArray(buckets);
+        mask = buckets - 1;
+        hits = Metrics.counter("cache." + name + ".hits");
+        misses = Metrics.counter("cache." + name + ".misses");
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ key >>> 32) & mask;
+    }
+
+    // The value stored for the key, or null
+    public V get(long key) {
+        int base = bucket(key) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            Entry<V> entry = entries.get(i);
+            if (entry != null && entry.key == key) {
+                // Written only when it changes, so hot entries stay shared in every core's cache
+                if (!entry.referenced)
+                    entry.referenced = true;
+                Metrics.increment(hits);
+                return entry.value;
+            }
+        }
+        Metrics.increment(misses);
+        return null;
+    }
+
+    public void put(long key, V value) {
+        int bucket = bucket(key);
+        int base = bucket * WAYS;
+        Entry<V> stored = new Entry<>(key, value);
+        for (int i = base; i < base + WAYS; i++) {
+            Entry<V> entry = entries.get(i);
+            if (entry == null || entry.key == key) {
+                entries.set(i, stored);
+                return;
+            }
+        }
+        // Each entry passed gets its second chance, so the hand stops within a round
+        for (int passed = 0;; passed++) {
+            int i = base + (hands.getAndIncrement(bucket) & (WAYS - 1));
+            Entry<V> entry = entries.get(i);
+            if (entry != null && entry.referenced && passed < WAYS) {
+                entry.referenced = false;
+                continue;
+            }
+            entries.set(i, stored);
+            return;
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+}
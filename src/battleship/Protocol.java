@@ -0,0 +1,96 @@
+package battleship;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// Wire format between GameServer and its clients. Every frame is a one-byte
+// type, a one-byte payload length and the payload. Rows and columns are
+// unsigned 16-bit big-endian values, so any RuleSet board fits.
+public final class Protocol {
+    // Client to server
+    public static final byte JOIN = 1; // name (UTF-8)
+    public static final byte PLACE = 2; // row, col, horizontal: places the next piece of the fleet
+    public static final byte RANDOMIZE = 3; // places the whole fleet at random
+    public static final byte FIRE = 4; // row, col
+    public static final byte SALVO = 5; // (row, col) per shot: a whole turn in one frame
+
+    // Server to client
+    public static final byte MATCHED = 65; // seat, rows, cols, rule flags, fleet size, sizes..., opponent name
+    public static final byte PLACED = 66; // pieces placed so far
+    public static final byte START = 67; // seat that fires first
+    public static final byte SHOT = 68; // shooter seat, row, col, result
+    public static final byte GAME_OVER = 69; // winner seat, reason
+    public static final byte ERROR = 70; // error code
+    public static final byte SALVO_RESULT = 71; // shooter seat, shots, (row, col) per shot, Salvo result (8 bytes)
+
+    // MATCHED rule flags
+    public static final int NO_TOUCHING = 1;
+    public static final int SALVO_RULES = 2;
+
+    // SHOT results
+    public static final int MISS = 0;
+    public static final int HIT = 1;
+    public static final int SUNK = 2;
+
+    // GAME_OVER reasons
+    public static final int FLEET_DESTROYED = 0;
+    public static final int OPPONENT_LEFT = 1;
+
+    // ERROR codes
+    public static final int BAD_REQUEST = 1;
+    public static final int WRONG_PHASE = 2;
+    public static final int NOT_YOUR_TURN = 3;
+    public static final int ILLEGAL_PLACEMENT = 4;
+    public static final int ALREADY_SHOT = 5;
+    public static final int WRONG_SHOT_COUNT = 6;
+
+    public static final int HEADER = 2;
+    public static final int MAX_PAYLOAD = 255;
+    public static final int MAX_NAME = 32;
+
+    private Protocol() {
+    }
+
+    // Length of the frame at the buffer's position, or -1 if it is incomplete
+    public static int frameLength(ByteBuffer in) {
+        if (in.remaining() < HEADER)
+            return -1;
+        int length = HEADER + (in.get(in.position() + 1) & 0xFF);
+        return in.remaining() < length ? -1 : length;
+    }
+
+    public static void putHeader(ByteBuffer out, byte type, int payload) {
+        out.put(type).put((byte) payload);
+    }
+
+    public static void putCoord(ByteBuffer out, int value) {
+        out.putShort((short) value);
+    }
+
+    public static int getCoord(ByteBuffer in) {
+        return in.getShort() & 0xFFFF;
+    }
+
+    public static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME)
+            throw new IllegalArgumentException("Name longer than " + MAX_NAME + " bytes: " + name);
+        return bytes;
+    }
+
+    // The name, or null if it is not valid UTF-8; invalid bytes are not
+    // replaced, since a replacement can take more bytes than MAX_NAME
+    public static String getName(ByteBuffer in, int length) {
+        ByteBuffer bytes = in.slice();
+        bytes.limit(length);
+        in.position(in.position() + length);
+        try {
+            return StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT).decode(bytes).toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package battleship;
+
+import java.util.SplittableRandom;
+
+public class RandomStrategy implements ShotStrategy {
+    private final int[] remaining = new int[BitBoard.CELLS];
+    private int count;
+    private SplittableRandom random;
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+
+    @Override
+    public void newGame(RuleSet rules, SplittableRandom random) {
+        if (!rules.isStandardBoard())
+            throw new IllegalArgumentException(getName() + " only plays on a 9x9 board");
+        this.random = random;
+        for (int i = 0; i < BitBoard.CELLS; i++) {
+            remaining[i] = i;
+        }
+        count = BitBoard.CELLS;
+    }
+
+    @Override
+    public int nextShot() {
+        // Swap the picked cell out of the live range so it is never chosen again
+        int pick = random.nextInt(count);
+        int cell = remaining[pick];
+        remaining[pick] = remaining[--count];
+        remaining[count] = cell;
+        return cell;
+    }
+
+    @Override
+    public int nextShots(int[] cells, int count) {
+        for (int i = 0; i < count; i++) {
+            cells[i] = nextShot();
+        }
+        return count;
+    }
+
+    @Override
+    public void shotResult(int index, boolean hit, Piece sunk) {
+    }
+}
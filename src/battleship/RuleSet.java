@@ -0,0 +1,93 @@
+package battleship;
+
+import java.util.Arrays;
+
+// Board dimensions, fleet and placement rules for a game.
+public class RuleSet {
+    public static final RuleSet STANDARD = new RuleSet(9, 9, new int[] { 3, 2, 2, 1, 1, 1 }, true);
+    public static final RuleSet SALVO = new RuleSet(9, 9, new int[] { 3, 2, 2, 1, 1, 1 }, true, true);
+    // Coordinates must fit a journal Move
+    public static final int MAX_SIDE = Move.MAX_COORD;
+
+    private final int rows;
+    private final int cols;
+    private final int[] fleet;
+    private final boolean noTouching;
+    private final boolean salvo;
+
+    public RuleSet(int rows, int cols, int[] fleet, boolean noTouching) {
+        this(rows, cols, fleet, noTouching, false);
+    }
+
+    public RuleSet(int rows, int cols, int[] fleet, boolean noTouching, boolean salvo) {
+        if (rows < 1 || cols < 1 || rows > MAX_SIDE || cols > MAX_SIDE || (long) rows * cols > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid board size " + rows + "x" + cols);
+        if (fleet.length == 0)
+            throw new IllegalArgumentException("Fleet is empty");
+        // Grown by half a cell on every side, ships that may not touch become
+        // disjoint (size + 1) x 2 rectangles on a (rows + 1) x (cols + 1) board
+        long area = noTouching ? (long) (rows + 1) * (cols + 1) : (long) rows * cols;
+        long footprint = 0;
+        for (int size : fleet) {
+            if (size < 1 || size > Math.max(rows, cols))
+                throw new IllegalArgumentException("Piece of size " + size + " does not fit the board");
+            footprint += noTouching ? 2L * (size + 1) : size;
+        }
+        if (footprint > area)
+            throw new IllegalArgumentException("Fleet of " + fleet.length + " pieces does not fit the board");
+        this.rows = rows;
+        this.cols = cols;
+        this.fleet = fleet.clone();
+        this.noTouching = noTouching;
+        this.salvo = salvo;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int[] getFleet() {
+        return fleet.clone();
+    }
+
+    public int getFleetSize() {
+        return fleet.length;
+    }
+
+    // Ships may not share an edge or a corner
+    public boolean isNoTouching() {
+        return noTouching;
+    }
+
+    // Each turn fires one shot per ship the shooter has afloat, see Game.fireBatch
+    public boolean isSalvo() {
+        return salvo;
+    }
+
+    // 9x9 games run on BitBoards and the precomputed Placements tables
+    public boolean isStandardBoard() {
+        return rows == BitBoard.SIZE && cols == BitBoard.SIZE;
+    }
+
+    public Board newBoard() {
+        return isStandardBoard() ? new BitBoard() : new SparseBoard(rows, cols);
+    }
+
+    public Piece[] newFleet() {
+        Piece[] pieces = new Piece[fleet.length];
+        for (int i = 0; i < fleet.length; i++) {
+            pieces[i] = Piece.ofSize(fleet[i]);
+        }
+        return pieces;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols + " " + Arrays.toString(fleet) + (noTouching ? " no-touching" : "")
+                + (salvo ? " salvo" : "");
+    }
+}
@@ -0,0 +1,41 @@
+package battleship;
+
+// Results of Game.fireBatch, packed into a long: bit i is set if shot i of the
+// batch hit, bit 32 + i if it sank a piece. Shots after the fleet went down
+// are dropped and read as misses.
+public final class Salvo {
+    public static final int MAX_SHOTS = 32;
+
+    private static final long HITS = (1L << MAX_SHOTS) - 1;
+
+    private Salvo() {
+    }
+
+    static long of(long hits, long sunk) {
+        return hits | sunk << MAX_SHOTS;
+    }
+
+    public static boolean isHit(long result, int shot) {
+        return (result >>> shot & 1) != 0;
+    }
+
+    public static boolean isSunk(long result, int shot) {
+        return (result >>> (MAX_SHOTS + shot) & 1) != 0;
+    }
+
+    public static int hits(long result) {
+        return Long.bitCount(result & HITS);
+    }
+
+    public static int sunk(long result) {
+        return Long.bitCount(result >>> MAX_SHOTS);
+    }
+
+    public static String toString(long result, int shots) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < shots; i++) {
+            sb.append(isSunk(result, i) ? 'S' : isHit(result, i) ? 'H' : '.');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package battleship;
+
+// A piece of any length, for fleets outside the classic three types.
+public class Ship extends Piece {
+    public Ship(int size) {
+        super(size);
+    }
+}
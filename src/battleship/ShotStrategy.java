@@ -0,0 +1,25 @@
+package battleship;
+
+import java.util.SplittableRandom;
+
+// A computer opponent's shot selection. Instances keep per-game state and are
+// not shared between games; cells are BitBoard indexes, so only rule sets with
+// a standard 9x9 board are supported.
+public interface ShotStrategy {
+    String getName();
+
+    void newGame(RuleSet rules, SplittableRandom random);
+
+    int nextShot();
+
+    // Aims up to count shots at once, as for a salvo, before any of their
+    // results is known, and returns how many cells it wrote. The default aims
+    // one, so the salvo is fired a shot at a time.
+    default int nextShots(int[] cells, int count) {
+        cells[0] = nextShot();
+        return 1;
+    }
+
+    // sunk is the piece sunk by this shot, or null.
+    void shotResult(int index, boolean hit, Piece sunk);
+}
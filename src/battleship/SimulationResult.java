@@ -0,0 +1,74 @@
+package battleship;
+
+// Aggregate of a batch of simulated games between strategy A and strategy B.
+public class SimulationResult {
+    private final String[] names;
+    private long games;
+    private final long[] wins = new long[2];
+    private final long[] winningShots = new long[2];
+    private long elapsedNanos;
+
+    public SimulationResult(String nameA, String nameB) {
+        this.names = new String[] { nameA, nameB };
+    }
+
+    public void record(int winner, int shots) {
+        games++;
+        wins[winner]++;
+        winningShots[winner] += shots;
+    }
+
+    public SimulationResult merge(SimulationResult other) {
+        games += other.games;
+        for (int i = 0; i < 2; i++) {
+            wins[i] += other.wins[i];
+            winningShots[i] += other.winningShots[i];
+        }
+        return this;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins(int strategy) {
+        return wins[strategy];
+    }
+
+    public double getWinRate(int strategy) {
+        return games == 0 ? 0 : (double) wins[strategy] / games;
+    }
+
+    // Average shots the strategy needed in the games it won
+    public double getAverageShotsToWin(int strategy) {
+        return wins[strategy] == 0 ? 0 : (double) winningShots[strategy] / wins[strategy];
+    }
+
+    public double getAverageShotsToWin() {
+        return games == 0 ? 0 : (double) (winningShots[0] + winningShots[1]) / games;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d games in %.3f s (%.0f games/s), avg shots to win %.2f%n",
+                games, elapsedNanos / 1e9, getGamesPerSecond(), getAverageShotsToWin()));
+        for (int i = 0; i < 2; i++) {
+            sb.append(String.format("  %-10s win rate %6.2f%%  avg shots to win %.2f%n",
+                    names[i], getWinRate(i) * 100, getAverageShotsToWin(i)));
+        }
+        return sb.toString();
+    }
+}
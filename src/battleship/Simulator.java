@@ -0,0 +1,209 @@
+package battleship;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+// Plays complete AI-vs-AI games on Game/Player without any JavaFX classes.
+// Every game gets its own seed derived from the base seed and its index, so a
+// run is reproducible no matter how the work is split across threads.
+public class Simulator {
+    private static final int BATCH = 256;
+    private static final int MAX_SHOTS = BitBoard.CELLS * 4;
+
+    private final RuleSet rules;
+    private final FleetGenerator fleet;
+    private final Supplier<ShotStrategy> strategyA;
+    private final Supplier<ShotStrategy> strategyB;
+    private final long seed;
+    private MoveLog log;
+    private TrainingLog trainingLog;
+
+    public Simulator(Supplier<ShotStrategy> strategyA, Supplier<ShotStrategy> strategyB, long seed) {
+        this(RuleSet.STANDARD, strategyA, strategyB, seed);
+    }
+
+    // The built-in strategies index shots on the 9x9 BitBoard
+    public Simulator(RuleSet rules, Supplier<ShotStrategy> strategyA, Supplier<ShotStrategy> strategyB, long seed) {
+        if (!rules.isStandardBoard())
+            throw new IllegalArgumentException("Simulations need a 9x9 board, got " + rules);
+        this.rules = rules;
+        this.fleet = new FleetGenerator(rules);
+        this.strategyA = strategyA;
+        this.strategyB = strategyB;
+        this.seed = seed;
+    }
+
+    // Records every simulated game; the log is shared by all worker threads
+    public void setLog(MoveLog log) {
+        this.log = log;
+    }
+
+    // Writes a training row for every shot of every simulated game
+    public void setTrainingLog(TrainingLog trainingLog) {
+        this.trainingLog = trainingLog;
+    }
+
+    public SimulationResult run(int games) {
+        return run(games, ForkJoinPool.commonPool());
+    }
+
+    public SimulationResult run(int games, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        SimulationResult result = pool.invoke(new Batch(0, games));
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    private SimulationResult newResult() {
+        return new SimulationResult(strategyA.get().getName(), strategyB.get().getName());
+    }
+
+    @SuppressWarnings("serial")
+    private class Batch extends RecursiveTask<SimulationResult> {
+        private final int from;
+        private final int to;
+
+        Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationResult compute() {
+            if (to - from <= BATCH) {
+                SimulationResult result = newResult();
+                ShotStrategy a = strategyA.get();
+                ShotStrategy b = strategyB.get();
+                for (int i = from; i < to; i++) {
+                    playGame(i, a, b, result);
+                }
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            Batch left = new Batch(from, mid);
+            left.fork();
+            SimulationResult right = new Batch(mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    public static long gameSeed(long seed, long gameIndex) {
+        return seed ^ (gameIndex * 0x9E3779B97F4A7C15L);
+    }
+
+    // Strategy A moves first in even games and second in odd ones.
+    private void playGame(long gameIndex, ShotStrategy a, ShotStrategy b, SimulationResult result) {
+        SplittableRandom random = new SplittableRandom(gameSeed(seed, gameIndex));
+        boolean aFirst = (gameIndex & 1) == 0;
+        ShotStrategy[] strategies = aFirst ? new ShotStrategy[] { a, b } : new ShotStrategy[] { b, a };
+
+        Game game = new Game("player1", "player2", rules);
+        if (log != null)
+            new GameRecorder(game, log);
+        if (trainingLog != null)
+            new TrainingRecorder(game, trainingLog);
+        fleet.fill(game.getCurrentPlayer(), rules.newFleet(), random);
+        fleet.fill(game.getOpponent(), rules.newFleet(), random);
+        strategies[0].newGame(rules, random.split());
+        strategies[1].newGame(rules, random.split());
+
+        int turn = 0;
+        int[] shots = new int[2];
+        int[] cells = new int[Salvo.MAX_SHOTS];
+        while (true) {
+            ShotStrategy shooter = strategies[turn];
+            shots[turn] += fireTurn(game, shooter, cells, BitBoard.CELLS - shots[turn]);
+            if (shots[turn] > MAX_SHOTS)
+                throw new IllegalStateException(shooter.getName() + " keeps firing at shot cells");
+            if (game.isGameOver())
+                break;
+            game.nextTurn();
+            turn ^= 1;
+        }
+        int winner = (turn == 0) == aFirst ? 0 : 1;
+        result.record(winner, shots[turn]);
+    }
+
+    // Fires the current player's turn for the shooter, tells it the results,
+    // and returns the shots that landed; open is the cells not yet shot on the
+    // target's board. Under salvo rules the turn's shots go through
+    // Game.fireBatch, aimed as many at a time as the shooter can.
+    static int fireTurn(Game game, ShotStrategy shooter, int[] cells, int open) {
+        if (!game.getRules().isSalvo()) {
+            int cell = shooter.nextShot();
+            int row = cell / BitBoard.SIZE;
+            int col = cell % BitBoard.SIZE;
+            boolean hit = game.fire(row, col);
+            shooter.shotResult(cell, hit, hit ? sunk(game.getOpponent(), row, col) : null);
+            return 1;
+        }
+        Player target = game.getOpponent();
+        int left = Math.min(game.getShotsPerTurn(), open);
+        int fired = 0;
+        while (left > 0 && !target.allPiecesDestroyed()) {
+            int n = shooter.nextShots(cells, left);
+            long result = game.fireBatch(cells, n);
+            for (int i = 0; i < n; i++) {
+                int row = cells[i] / BitBoard.SIZE;
+                int col = cells[i] % BitBoard.SIZE;
+                if (!target.getBoard().isShot(row, col))
+                    break; // dropped once the fleet was down
+                boolean hit = Salvo.isHit(result, i);
+                shooter.shotResult(cells[i], hit, Salvo.isSunk(result, i) ? target.getPieceAt(row, col) : null);
+                fired++;
+            }
+            left -= n;
+        }
+        return fired;
+    }
+
+    private static Piece sunk(Player target, int row, int col) {
+        Piece piece = target.getPieceAt(row, col);
+        return piece.isDestroyed() ? piece : null;
+    }
+
+    public static Supplier<ShotStrategy> strategy(String name) {
+        return strategy(name, null);
+    }
+
+    // The montecarlo strategies made share the cache, if there is one
+    public static Supplier<ShotStrategy> strategy(String name, PositionCache<double[]> cache) {
+        switch (name) {
+            case "random":
+                return RandomStrategy::new;
+            case "hunt":
+                return HuntTargetStrategy::new;
+            case "heatmap":
+                return HeatmapStrategy::new;
+            case "endgame":
+                return EndgameStrategy::new;
+            case "montecarlo":
+                return () -> new MonteCarloStrategy(MonteCarloStrategy.DEFAULT_SAMPLES, 0, ForkJoinPool.commonPool(),
+                        cache);
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    // Usage: Simulator [games] [strategyA] [strategyB] [seed] [move log]
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String a = args.length > 1 ? args[1] : "hunt";
+        String b = args.length > 2 ? args[2] : "random";
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        PositionCache<double[]> cache = MonteCarloStrategy.newCache();
+        Simulator simulator = new Simulator(strategy(a, cache), strategy(b, cache), seed);
+        if (args.length > 4) {
+            try (MoveLog log = new MoveLog(Paths.get(args[4]))) {
+                simulator.setLog(log);
+                System.out.print(simulator.run(games));
+            }
+        } else {
+            System.out.print(simulator.run(games));
+        }
+    }
+}
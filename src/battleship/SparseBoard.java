@@ -0,0 +1,129 @@
+package battleship;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Board for large grids that stores only ship segments and shots, so memory
+// grows with the fleet and the number of shots rather than with the area.
+// Horizontal pieces are indexed by row and vertical ones by column, each in a
+// TreeMap keyed by start; segments in one line never overlap, so the floor
+// entry is the only one that can cover a given cell.
+public class SparseBoard implements Board {
+    private final int rows;
+    private final int cols;
+    private final Map<Integer, TreeMap<Integer, Piece>> byRow = new HashMap<>();
+    private final Map<Integer, TreeMap<Integer, Piece>> byCol = new HashMap<>();
+    private final CellSet shots = new CellSet();
+
+    public SparseBoard(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean hasShip(int row, int col) {
+        return getPieceAt(row, col) != null;
+    }
+
+    @Override
+    public boolean isShot(int row, int col) {
+        return shots.contains((long) row * cols + col);
+    }
+
+    @Override
+    public boolean shoot(int row, int col) {
+        return shots.add((long) row * cols + col);
+    }
+
+    @Override
+    public void unshoot(int row, int col) {
+        shots.remove((long) row * cols + col);
+    }
+
+    @Override
+    public long[] getShotCells() {
+        return shots.toArray();
+    }
+
+    public int getShotCount() {
+        return shots.size();
+    }
+
+    @Override
+    public boolean canPlace(int size, int row, int col, boolean horizontal, boolean noTouching) {
+        int endRow = horizontal ? row : row + size - 1;
+        int endCol = horizontal ? col + size - 1 : col;
+        if (row < 0 || col < 0 || endRow >= rows || endCol >= cols)
+            return false;
+        int border = noTouching ? 1 : 0;
+        int r0 = Math.max(0, row - border);
+        int r1 = Math.min(rows - 1, endRow + border);
+        int c0 = Math.max(0, col - border);
+        int c1 = Math.min(cols - 1, endCol + border);
+        for (int r = r0; r <= r1; r++) {
+            if (overlaps(byRow.get(r), c0, c1))
+                return false;
+        }
+        for (int c = c0; c <= c1; c++) {
+            if (overlaps(byCol.get(c), r0, r1))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean overlaps(TreeMap<Integer, Piece> line, int from, int to) {
+        if (line == null)
+            return false;
+        Map.Entry<Integer, Piece> e = line.floorEntry(to);
+        return e != null && e.getKey() + e.getValue().getSize() - 1 >= from;
+    }
+
+    @Override
+    public void addPiece(Piece piece) {
+        if (piece.isHorizontal()) {
+            byRow.computeIfAbsent(piece.getStartRow(), k -> new TreeMap<>()).put(piece.getStartCol(), piece);
+        } else {
+            byCol.computeIfAbsent(piece.getStartCol(), k -> new TreeMap<>()).put(piece.getStartRow(), piece);
+        }
+    }
+
+    @Override
+    public void removePiece(Piece piece) {
+        Map<Integer, TreeMap<Integer, Piece>> lines = piece.isHorizontal() ? byRow : byCol;
+        int line = piece.isHorizontal() ? piece.getStartRow() : piece.getStartCol();
+        TreeMap<Integer, Piece> segments = lines.get(line);
+        if (segments != null && segments.remove(piece.isHorizontal() ? piece.getStartCol() : piece.getStartRow(),
+                piece) && segments.isEmpty())
+            lines.remove(line);
+    }
+
+    @Override
+    public Piece getPieceAt(int row, int col) {
+        Piece piece = find(byRow.get(row), col);
+        return piece != null ? piece : find(byCol.get(col), row);
+    }
+
+    private static Piece find(TreeMap<Integer, Piece> line, int pos) {
+        if (line == null)
+            return null;
+        Map.Entry<Integer, Piece> e = line.floorEntry(pos);
+        return e != null && e.getKey() + e.getValue().getSize() > pos ? e.getValue() : null;
+    }
+
+    @Override
+    public void clearShips() {
+        byRow.clear();
+        byCol.clear();
+    }
+}
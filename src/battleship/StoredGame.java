@@ -0,0 +1,284 @@
+package battleship;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Flyweight Game over one GameStore slot (see GameStore for the layout). All
+// state is read from and written to the slot; the view itself only holds the
+// slot's address, so one view can walk a million games.
+public class StoredGame {
+    public static final int DEPLOY = 0;
+    public static final int PLAY = 1;
+    public static final int OVER = 2;
+    // The slot was freed and holds no game
+    public static final int FREE = 3;
+
+    // fire results
+    public static final int ALREADY_SHOT = -1;
+    public static final int MISS = 0;
+    public static final int HIT = 1;
+    public static final int SUNK = 2;
+
+    static final int UNPLACED = 0xFF;
+    static final int STATE = 60;
+    private static final int PLAYER = 24;
+    private static final int PLACEMENTS = 48;
+    private static final int SHOT_HI = 17;
+    private static final int HITS = 34;
+    private static final int AFLOAT = 46;
+    private static final long HI_MASK = BitBoard.FULL_HI;
+
+    private final GameStore store;
+    private final int[] fleet;
+    private int slot;
+    private ByteBuffer chunk;
+    private int base;
+
+    StoredGame(GameStore store, int slot) {
+        this.store = store;
+        this.fleet = store.fleet();
+        moveTo(slot);
+    }
+
+    public void moveTo(int slot) {
+        this.slot = slot;
+        chunk = store.chunk(slot);
+        base = GameStore.offset(slot);
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    private int state() {
+        return chunk.get(base + STATE);
+    }
+
+    public int getPhase() {
+        return state() >> 1 & 3;
+    }
+
+    // Seat to fire next
+    public int getTurn() {
+        return state() & 1;
+    }
+
+    // Seat of the winner, or -1 while the game is on
+    public int getWinner() {
+        return getPhase() == OVER ? state() >> 3 & 1 : -1;
+    }
+
+    private void setState(int turn, int phase, int winner) {
+        chunk.put(base + STATE, (byte) (turn | phase << 1 | winner << 3));
+    }
+
+    public void nextTurn() {
+        chunk.put(base + STATE, (byte) (state() ^ 1));
+    }
+
+    private long shipLo(int player) {
+        return chunk.getLong(base + player * PLAYER);
+    }
+
+    private long shotLo(int player) {
+        return chunk.getLong(base + player * PLAYER + 8);
+    }
+
+    private long packed(int player) {
+        return chunk.getLong(base + player * PLAYER + 16);
+    }
+
+    private static long shipHi(long packed) {
+        return packed & HI_MASK;
+    }
+
+    private static long shotHi(long packed) {
+        return packed >>> SHOT_HI & HI_MASK;
+    }
+
+    public int getShipsAfloat(int player) {
+        return (int) (packed(player) >>> AFLOAT & 7);
+    }
+
+    // Hit cells of the fleet piece
+    public int getPieceHits(int player, int piece) {
+        return (int) (packed(player) >>> (HITS + 2 * piece) & 3);
+    }
+
+    public boolean hasShip(int player, int row, int col) {
+        int index = BitBoard.index(row, col);
+        return Placements.contains(shipLo(player), shipHi(packed(player)), index);
+    }
+
+    public boolean isShot(int player, int row, int col) {
+        int index = BitBoard.index(row, col);
+        return Placements.contains(shotLo(player), shotHi(packed(player)), index);
+    }
+
+    // Placement id of the fleet piece, or -1 if it is not placed yet
+    public int getPlacement(int player, int piece) {
+        int b = chunk.get(base + PLACEMENTS + player * GameStore.MAX_PIECES + piece) & 0xFF;
+        if (b == UNPLACED)
+            return -1;
+        int cell = b & 0x7F;
+        return Placements.id(fleet[piece], cell / BitBoard.SIZE, cell % BitBoard.SIZE, b >= 0x80);
+    }
+
+    // Places the fleet piece, which must not be placed yet
+    public boolean placePiece(int player, int piece, int row, int col, boolean isHorizontal) {
+        if (getPhase() != DEPLOY || getPlacement(player, piece) >= 0)
+            return false;
+        int id = Placements.lookup(fleet[piece], row, col, isHorizontal);
+        if (id < 0)
+            return false;
+        boolean noTouching = store.getRules().isNoTouching();
+        long lo = noTouching ? Placements.haloLo(id) : Placements.footLo(id);
+        long hi = noTouching ? Placements.haloHi(id) : Placements.footHi(id);
+        long packed = packed(player);
+        if (((lo & shipLo(player)) | (hi & shipHi(packed))) != 0)
+            return false;
+        place(player, piece, id);
+        return true;
+    }
+
+    // Places the whole fleet from FleetGenerator.sample ids, unchecked
+    public void placeFleet(int player, int[] ids) {
+        for (int piece = 0; piece < fleet.length; piece++) {
+            place(player, piece, ids[piece]);
+        }
+    }
+
+    private void place(int player, int piece, int id) {
+        int offset = base + player * PLAYER;
+        chunk.putLong(offset, shipLo(player) | Placements.footLo(id));
+        long packed = packed(player) | Placements.footHi(id);
+        packed += 1L << AFLOAT;
+        chunk.putLong(offset + 16, packed);
+        chunk.put(base + PLACEMENTS + player * GameStore.MAX_PIECES + piece,
+                (byte) (Placements.cell(id) | (Placements.isHorizontal(id) ? 0x80 : 0)));
+        if (getShipsAfloat(0) == fleet.length && getShipsAfloat(1) == fleet.length)
+            setState(getTurn(), PLAY, 0);
+    }
+
+    // The seat to move fires at the other seat's board
+    public int fire(int row, int col) {
+        if (getPhase() != PLAY)
+            throw new IllegalStateException("Game in slot " + slot + " is not being played");
+        int target = 1 - getTurn();
+        int index = BitBoard.index(row, col);
+        int offset = base + target * PLAYER;
+        long packed = packed(target);
+        if (index < 64) {
+            long shot = shotLo(target);
+            if ((shot & 1L << index) != 0)
+                return ALREADY_SHOT;
+            chunk.putLong(offset + 8, shot | 1L << index);
+        } else {
+            long bit = 1L << (index - 64 + SHOT_HI);
+            if ((packed & bit) != 0)
+                return ALREADY_SHOT;
+            packed |= bit;
+        }
+        int result = MISS;
+        if (Placements.contains(shipLo(target), shipHi(packed), index)) {
+            result = HIT;
+            for (int piece = 0; piece < fleet.length; piece++) {
+                int id = getPlacement(target, piece);
+                if (!Placements.contains(Placements.footLo(id), Placements.footHi(id), index))
+                    continue;
+                packed += 1L << (HITS + 2 * piece);
+                if ((packed >>> (HITS + 2 * piece) & 3) == fleet[piece]) {
+                    result = SUNK;
+                    packed -= 1L << AFLOAT;
+                }
+                break;
+            }
+        }
+        chunk.putLong(offset + 16, packed);
+        if (result == SUNK && (packed >>> AFLOAT & 7) == 0)
+            setState(getTurn(), OVER, 1 - target);
+        return result;
+    }
+
+    // Copies a 9x9 game with this store's fleet into the slot
+    public void write(Game game) {
+        RuleSet rules = game.getRules();
+        if (!rules.isStandardBoard() || !Arrays.equals(rules.getFleet(), fleet))
+            throw new IllegalArgumentException("Game does not match the store's rules: " + rules);
+        for (int i = 0; i < GameStore.SLOT; i += 8) {
+            chunk.putLong(base + i, i < PLACEMENTS ? 0 : -1L);
+        }
+        for (int player = 0; player < 2; player++) {
+            Player owner = game.getPlayer(player);
+            List<Piece> pieces = owner.getPieces();
+            boolean[] used = new boolean[pieces.size()];
+            for (int piece = 0; piece < fleet.length; piece++) {
+                for (int i = 0; i < pieces.size(); i++) {
+                    Piece p = pieces.get(i);
+                    if (used[i] || p.getSize() != fleet[piece])
+                        continue;
+                    used[i] = true;
+                    place(player, piece, Placements.id(p.getSize(), p.getStartRow(), p.getStartCol(),
+                            p.isHorizontal()));
+                    long packed = packed(player) + ((long) (p.getSize() - p.getRemaining()) << (HITS + 2 * piece));
+                    if (p.isDestroyed())
+                        packed -= 1L << AFLOAT;
+                    chunk.putLong(base + player * PLAYER + 16, packed);
+                    break;
+                }
+            }
+            BitBoard board = (BitBoard) owner.getBoard();
+            long packed = packed(player) | board.getShotHi() << SHOT_HI;
+            chunk.putLong(base + player * PLAYER + 8, board.getShotLo());
+            chunk.putLong(base + player * PLAYER + 16, packed);
+        }
+        int turn = game.getCurrentPlayer() == game.getPlayer(0) ? 0 : 1;
+        if (game.isGameOver()) {
+            setState(turn, OVER, game.getPlayer(0).allPiecesDestroyed() ? 1 : 0);
+        } else {
+            setState(turn, isDeployed() ? PLAY : DEPLOY, 0);
+        }
+    }
+
+    private boolean isDeployed() {
+        for (int player = 0; player < 2; player++) {
+            for (int piece = 0; piece < fleet.length; piece++) {
+                if (getPlacement(player, piece) < 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // Rebuilds a heap Game from the slot, e.g. to resume play in the GUI or
+    // server. A slot keeps no shot order, so the game starts at the slot's
+    // position with no history (see Game.fromSnapshot): moves made from there
+    // can be undone, the shots before cannot.
+    public Game toGame(String name1, String name2) {
+        long[][] fleets = new long[2][];
+        long[][] shots = new long[2][];
+        for (int player = 0; player < 2; player++) {
+            long[] placed = new long[fleet.length];
+            int n = 0;
+            for (int piece = 0; piece < fleet.length; piece++) {
+                int id = getPlacement(player, piece);
+                if (id < 0)
+                    continue;
+                Piece p = Piece.ofSize(fleet[piece]);
+                p.setPosition(Placements.cell(id) / BitBoard.SIZE, Placements.cell(id) % BitBoard.SIZE,
+                        Placements.isHorizontal(id));
+                placed[n++] = Move.place(player, p);
+            }
+            fleets[player] = Arrays.copyOf(placed, n);
+            long lo = shotLo(player);
+            long hi = shotHi(packed(player));
+            shots[player] = new long[BitBoard.bitCount(lo, hi)];
+            for (int i = 0; i < shots[player].length; i++) {
+                shots[player][i] = BitBoard.selectBit(lo, hi, i);
+            }
+        }
+        return Game.fromSnapshot(name1, name2, store.getRules(),
+                new GameSnapshot(0, getTurn() == 0, fleets, shots));
+    }
+}
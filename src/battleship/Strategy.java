@@ -0,0 +1,31 @@
+package battleship;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+// A complete computer player: where its fleet goes and where it fires. Like a
+// ShotStrategy, an instance plays one game at a time; placeFleet is called
+// before newGame.
+public interface Strategy extends ShotStrategy {
+    // Places the whole fleet on the player's board through Player.placePiece
+    void placeFleet(Player player, Piece[] fleet, SplittableRandom random);
+
+    // shots with its fleet placed uniformly at random
+    static Strategy of(ShotStrategy shots) {
+        return new PlacingStrategy(shots, PlacingStrategy.Style.RANDOM);
+    }
+
+    // A shot strategy name as for Simulator.strategy, optionally followed by
+    // a placement style: heatmap, heatmap+edges, hunt+center
+    static Supplier<Strategy> named(String name) {
+        return named(name, null);
+    }
+
+    static Supplier<Strategy> named(String name, PositionCache<double[]> cache) {
+        int plus = name.indexOf('+');
+        Supplier<ShotStrategy> shots = Simulator.strategy(plus < 0 ? name : name.substring(0, plus), cache);
+        PlacingStrategy.Style style = plus < 0 ? PlacingStrategy.Style.RANDOM
+                : PlacingStrategy.Style.named(name.substring(plus + 1));
+        return () -> new PlacingStrategy(shots.get(), style);
+    }
+}
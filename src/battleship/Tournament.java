@@ -0,0 +1,237 @@
+package battleship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Plays registered strategies against each other on the fork-join pool and
+// rates them. Results go straight into one LongAdder per ordered pair, so the
+// games of all worker threads are tallied without locks. As in Simulator,
+// every game's seed comes from the base seed and the game's number, so a run
+// is reproducible however the work is split, and the strategies of a pairing
+// take turns moving first.
+public class Tournament {
+    private static final int BATCH = 64;
+    private static final int MAX_SHOTS = BitBoard.CELLS * 8; // by both players
+
+    private final RuleSet rules;
+    private final long seed;
+    private final List<String> names = new ArrayList<>();
+    private final List<Supplier<Strategy>> strategies = new ArrayList<>();
+
+    public Tournament(RuleSet rules, long seed) {
+        if (!rules.isStandardBoard())
+            throw new IllegalArgumentException("Tournaments need a 9x9 board, got " + rules);
+        this.rules = rules;
+        this.seed = seed;
+    }
+
+    public void register(String name, Supplier<Strategy> strategy) {
+        if (names.contains(name))
+            throw new IllegalArgumentException("Already registered: " + name);
+        names.add(name);
+        strategies.add(strategy);
+    }
+
+    // Every pair of strategies plays the given number of games
+    public TournamentResult roundRobin(int gamesPerPair, ForkJoinPool pool) {
+        int n = names.size();
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                pairs.add(new int[] { i, j });
+            }
+        }
+        Tally tally = new Tally(n);
+        long start = System.nanoTime();
+        pool.invoke(new Games(pairs.toArray(new int[0][]), gamesPerPair, 0, 0, (long) pairs.size() * gamesPerPair,
+                tally));
+        return tally.result(System.nanoTime() - start);
+    }
+
+    // Each round pairs every strategy with the nearest one in the current
+    // ratings that it has not met yet, and each pairing plays a match of the
+    // given number of games. Takes far fewer games than a round robin to sort
+    // a large field; with an odd field the lowest rated strategy sits out.
+    public TournamentResult swiss(int rounds, int gamesPerMatch, ForkJoinPool pool) {
+        int n = names.size();
+        Tally tally = new Tally(n);
+        boolean[] met = new boolean[n * n];
+        Integer[] order = new Integer[n];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Integer t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        long start = System.nanoTime();
+        long first = 0;
+        for (int round = 0; round < rounds; round++) {
+            if (round > 0) {
+                double[] ratings = tally.result(0).getRatings();
+                Arrays.sort(order, (a, b) -> Double.compare(ratings[b], ratings[a]));
+            }
+            int[][] pairs = pairUp(order, met);
+            long last = first + (long) pairs.length * gamesPerMatch;
+            pool.invoke(new Games(pairs, gamesPerMatch, first, first, last, tally));
+            first = last;
+        }
+        return tally.result(System.nanoTime() - start);
+    }
+
+    // Greedy from the top: each unpaired strategy takes the next unpaired one
+    // it has not met, or simply the next one when it has met them all
+    private static int[][] pairUp(Integer[] order, boolean[] met) {
+        int n = order.length;
+        boolean[] paired = new boolean[n];
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (paired[i])
+                continue;
+            int partner = -1;
+            for (int j = i + 1; j < n; j++) {
+                if (paired[j])
+                    continue;
+                if (partner < 0)
+                    partner = j;
+                if (!met[order[i] * n + order[j]]) {
+                    partner = j;
+                    break;
+                }
+            }
+            if (partner < 0)
+                break;
+            paired[i] = paired[partner] = true;
+            int a = order[i];
+            int b = order[partner];
+            met[a * n + b] = met[b * n + a] = true;
+            pairs.add(new int[] { a, b });
+        }
+        return pairs.toArray(new int[0][]);
+    }
+
+    private class Tally {
+        private final int n;
+        private final LongAdder[] wins; // wins[i * n + j]: games i won against j
+
+        Tally(int n) {
+            this.n = n;
+            wins = new LongAdder[n * n];
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] = new LongAdder();
+            }
+        }
+
+        TournamentResult result(long elapsedNanos) {
+            long[] counts = new long[n * n];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = wins[i].sum();
+            }
+            return new TournamentResult(names.toArray(new String[0]), counts, elapsedNanos);
+        }
+    }
+
+    // Games from..to of a schedule where pair k plays games
+    // base + k * perPair up to base + (k + 1) * perPair
+    @SuppressWarnings("serial")
+    private class Games extends RecursiveAction {
+        private final int[][] pairs;
+        private final int perPair;
+        private final long base;
+        private final long from;
+        private final long to;
+        private final Tally tally;
+
+        Games(int[][] pairs, int perPair, long base, long from, long to, Tally tally) {
+            this.pairs = pairs;
+            this.perPair = perPair;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+            this.tally = tally;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH) {
+                for (long game = from; game < to; game++) {
+                    int[] pair = pairs[(int) ((game - base) / perPair)];
+                    int winner = playGame(game, pair[0], pair[1]);
+                    int loser = winner == pair[0] ? pair[1] : pair[0];
+                    tally.wins[winner * tally.n + loser].increment();
+                }
+                return;
+            }
+            long mid = (from + to) >>> 1;
+            invokeAll(new Games(pairs, perPair, base, from, mid, tally),
+                    new Games(pairs, perPair, base, mid, to, tally));
+        }
+    }
+
+    // Returns the index of the winner; a moves first in even games
+    private int playGame(long gameIndex, int a, int b) {
+        SplittableRandom random = new SplittableRandom(Simulator.gameSeed(seed, gameIndex));
+        boolean aFirst = (gameIndex & 1) == 0;
+        Strategy[] players = aFirst ? new Strategy[] { strategies.get(a).get(), strategies.get(b).get() }
+                : new Strategy[] { strategies.get(b).get(), strategies.get(a).get() };
+        Game game = new Game("player1", "player2", rules);
+        players[0].placeFleet(game.getCurrentPlayer(), rules.newFleet(), random.split());
+        players[1].placeFleet(game.getOpponent(), rules.newFleet(), random.split());
+        players[0].newGame(rules, random.split());
+        players[1].newGame(rules, random.split());
+
+        int turn = 0;
+        int[] shots = new int[2];
+        int[] cells = new int[Salvo.MAX_SHOTS];
+        while (true) {
+            Strategy shooter = players[turn];
+            shots[turn] += Simulator.fireTurn(game, shooter, cells, BitBoard.CELLS - shots[turn]);
+            if (shots[0] + shots[1] > MAX_SHOTS)
+                throw new IllegalStateException(shooter.getName() + " keeps firing at shot cells");
+            if (game.isGameOver())
+                break;
+            game.nextTurn();
+            turn ^= 1;
+        }
+        return (turn == 0) == aFirst ? a : b;
+    }
+
+    // Usage: Tournament [games per pair] [seed] [swiss rounds] [strategy]...
+    // Strategies are named as for Strategy.named; the default field is every
+    // built-in shot strategy with every placement style. With swiss rounds
+    // above 0, a Swiss tournament of that many rounds is played instead of a
+    // round robin.
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        List<String> field = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            field.add(args[i]);
+        }
+        if (field.isEmpty()) {
+            for (String shots : new String[] { "random", "hunt", "heatmap", "endgame" }) {
+                for (PlacingStrategy.Style style : PlacingStrategy.Style.values()) {
+                    field.add(style == PlacingStrategy.Style.RANDOM ? shots
+                            : shots + "+" + style.name().toLowerCase());
+                }
+            }
+        }
+        Tournament tournament = new Tournament(RuleSet.STANDARD, seed);
+        PositionCache<double[]> cache = MonteCarloStrategy.newCache();
+        for (String name : field) {
+            tournament.register(name, Strategy.named(name, cache));
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.print(rounds > 0 ? tournament.swiss(rounds, games, pool) : tournament.roundRobin(games, pool));
+    }
+}
@@ -0,0 +1,195 @@
+package battleship;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+// Win counts between the strategies of a tournament, and the Elo ratings
+// they imply. Ratings are the Bradley-Terry fit of all games, so every game
+// counts the same whoever played first and in whatever order games finished,
+// unlike incremental Elo updates. Each pair that met gets half a virtual win
+// each way, which keeps a strategy that never won from sinking to minus
+// infinity. The 95% intervals come from the curvature of the likelihood at
+// the fit.
+public class TournamentResult {
+    private static final double ELO = 400 / Math.log(10);
+    private static final double BASE = 1500;
+    private static final double Z95 = 1.96;
+    private static final double PRIOR = 0.5;
+    private static final int MAX_ITERATIONS = 10_000;
+
+    private final String[] names;
+    private final long[] wins;
+    private final long elapsedNanos;
+    private double[] ratings;
+    private double[] errors;
+
+    TournamentResult(String[] names, long[] wins, long elapsedNanos) {
+        this.names = names;
+        this.wins = wins;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int strategy) {
+        return names[strategy];
+    }
+
+    public long getWins(int strategy, int against) {
+        return wins[strategy * names.length + against];
+    }
+
+    public long getGames(int strategy) {
+        long games = 0;
+        for (int j = 0; j < names.length; j++) {
+            games += getWins(strategy, j) + getWins(j, strategy);
+        }
+        return games;
+    }
+
+    public long getGames() {
+        return Arrays.stream(wins).sum();
+    }
+
+    public double getWinRate(int strategy) {
+        long games = getGames(strategy);
+        long won = 0;
+        for (int j = 0; j < names.length; j++) {
+            won += getWins(strategy, j);
+        }
+        return games == 0 ? 0 : (double) won / games;
+    }
+
+    // Elo ratings, 1500 on average
+    public double[] getRatings() {
+        fit();
+        return ratings.clone();
+    }
+
+    // Half the width of the 95% confidence interval of the rating
+    public double getInterval(int strategy) {
+        fit();
+        return Z95 * errors[strategy];
+    }
+
+    private double games(int i, int j) {
+        long n = getWins(i, j) + getWins(j, i);
+        return n == 0 ? 0 : n + 2 * PRIOR;
+    }
+
+    private void fit() {
+        if (ratings != null)
+            return;
+        int n = names.length;
+        // Minorization-maximization (Hunter 2004) on strengths p = e^theta
+        double[] p = new double[n];
+        Arrays.fill(p, 1);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double change = 0;
+            double logSum = 0;
+            for (int i = 0; i < n; i++) {
+                double won = 0;
+                double denominator = 0;
+                for (int j = 0; j < n; j++) {
+                    double games = games(i, j);
+                    if (games == 0)
+                        continue;
+                    won += getWins(i, j) + PRIOR;
+                    denominator += games / (p[i] + p[j]);
+                }
+                double next = denominator == 0 ? 1 : won / denominator;
+                change = Math.max(change, Math.abs(Math.log(next / p[i])));
+                p[i] = next;
+                logSum += Math.log(next);
+            }
+            double scale = Math.exp(-logSum / n);
+            for (int i = 0; i < n; i++) {
+                p[i] *= scale;
+            }
+            if (change < 1e-10)
+                break;
+        }
+        ratings = new double[n];
+        for (int i = 0; i < n; i++) {
+            ratings[i] = BASE + ELO * Math.log(p[i]);
+        }
+        errors = standardErrors(p);
+    }
+
+    // The Fisher information of theta has the all-ones vector in its null
+    // space, as only differences of ratings are identified; the covariance of
+    // the centred ratings is its pseudo-inverse, (I + J/n)^-1 - J/n.
+    private double[] standardErrors(double[] p) {
+        int n = p.length;
+        double[][] a = new double[n][2 * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j)
+                    continue;
+                double games = games(i, j);
+                double info = games * p[i] * p[j] / ((p[i] + p[j]) * (p[i] + p[j]));
+                a[i][i] += info;
+                a[i][j] -= info;
+            }
+            for (int j = 0; j < n; j++) {
+                a[i][j] += 1.0 / n;
+            }
+            a[i][n + i] = 1;
+        }
+        // Gauss-Jordan with partial pivoting; the matrix is positive definite
+        // when every strategy is connected to the rest by games
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col]))
+                    pivot = row;
+            }
+            double[] t = a[col];
+            a[col] = a[pivot];
+            a[pivot] = t;
+            double d = a[col][col];
+            if (Math.abs(d) < 1e-12) {
+                double[] unknown = new double[n];
+                Arrays.fill(unknown, Double.POSITIVE_INFINITY);
+                return unknown;
+            }
+            for (int k = 0; k < 2 * n; k++) {
+                a[col][k] /= d;
+            }
+            for (int row = 0; row < n; row++) {
+                if (row == col || a[row][col] == 0)
+                    continue;
+                double f = a[row][col];
+                for (int k = 0; k < 2 * n; k++) {
+                    a[row][k] -= f * a[col][k];
+                }
+            }
+        }
+        double[] errors = new double[n];
+        for (int i = 0; i < n; i++) {
+            errors[i] = ELO * Math.sqrt(Math.max(0, a[i][n + i] - 1.0 / n));
+        }
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        double[] elo = getRatings();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%,d games in %.3f s (%.0f games/s)%n", getGames(), elapsedNanos / 1e9,
+                elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos));
+        sb.append(String.format("%4s  %-18s %6s %7s %9s %7s%n", "rank", "strategy", "elo", "95%", "games", "won"));
+        int[] order = IntStream.range(0, names.length).boxed()
+                .sorted(Comparator.comparingDouble(i -> -elo[i]))
+                .mapToInt(Integer::intValue).toArray();
+        for (int rank = 0; rank < order.length; rank++) {
+            int i = order[rank];
+            sb.append(String.format("%4d  %-18s %6.0f %7s %,9d %6.2f%%%n", rank + 1, names[i], elo[i],
+                    String.format("+-%.0f", getInterval(i)), getGames(i), 100 * getWinRate(i)));
+        }
+        return sb.toString();
+    }
+}
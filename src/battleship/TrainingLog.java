@@ -0,0 +1,174 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Self-play training rows for learned opponents: what the shooter had seen of
+// the target's board before a shot, the shot, and how the shot and the game
+// turned out. Rows are fixed width and stored by column in chunks:
+//
+//   header   HEADER bytes: MAGIC, CHUNK_ROWS, then the row count, set on close
+//   chunk    CHUNK_ROWS rows of each column in turn
+//              shot lo   8 bytes  cells 0-63 shot at before this shot
+//              hit lo    8 bytes  cells 0-63 hit before this shot
+//              shot hi   4 bytes  cells 64-80
+//              hit hi    4 bytes
+//              action    1 byte   the cell shot at
+//              outcome   1 byte   MISS, HIT or SUNK, plus WON if the shooter won
+//
+// Everything is little-endian and the last chunk is padded with zeros to full
+// size, so each column of a chunk maps straight onto an array.
+//
+// Appends only copy into the chunk being filled. A full chunk is written by
+// the asynchronous channel while appends fill the other of two buffers, so the
+// threads generating games only wait when the disk is a whole chunk behind.
+public class TrainingLog implements AutoCloseable {
+    public static final int MAGIC = 0x42535431; // "BST1"
+    public static final int HEADER = 64;
+    public static final int CHUNK_ROWS = 8192;
+    public static final int ROW_BYTES = 26;
+    public static final int CHUNK_BYTES = CHUNK_ROWS * ROW_BYTES;
+
+    // Column offsets within a chunk
+    public static final int SHOT_LO = 0;
+    public static final int HIT_LO = 8 * CHUNK_ROWS;
+    public static final int SHOT_HI = 16 * CHUNK_ROWS;
+    public static final int HIT_HI = 20 * CHUNK_ROWS;
+    public static final int ACTION = 24 * CHUNK_ROWS;
+    public static final int OUTCOME = 25 * CHUNK_ROWS;
+
+    public static final int MISS = 0;
+    public static final int HIT = 1;
+    public static final int SUNK = 2;
+    public static final int WON = 0x80;
+
+    private final AsynchronousFileChannel channel;
+    private ByteBuffer chunk = newChunk(); // being filled
+    private ByteBuffer spare = newChunk(); // being written while pending is set
+    private Future<Integer> pending;
+    private long pendingOffset;
+    private int slot; // rows in chunk
+    private long chunks; // chunks handed to the channel
+    private long rows;
+
+    // Replaces any existing file
+    public TrainingLog(Path path) throws IOException {
+        channel = AsynchronousFileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static ByteBuffer newChunk() {
+        return ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    // Appends count rows; row i saw the shots in shots[2i] (lo) and
+    // shots[2i + 1] (hi), and the hits likewise. Safe to call from several
+    // threads.
+    public synchronized void append(long[] shots, long[] hits, byte[] actions, byte[] outcomes, int count)
+            throws IOException {
+        for (int i = 0; i < count; i++) {
+            chunk.putLong(SHOT_LO + 8 * slot, shots[2 * i]);
+            chunk.putLong(HIT_LO + 8 * slot, hits[2 * i]);
+            chunk.putInt(SHOT_HI + 4 * slot, (int) shots[2 * i + 1]);
+            chunk.putInt(HIT_HI + 4 * slot, (int) hits[2 * i + 1]);
+            chunk.put(ACTION + slot, actions[i]);
+            chunk.put(OUTCOME + slot, outcomes[i]);
+            if (++slot == CHUNK_ROWS)
+                writeChunk();
+        }
+        rows += count;
+    }
+
+    // Hands the chunk to the channel and carries on in the spare once that
+    // one's own write is done
+    private void writeChunk() throws IOException {
+        await();
+        ByteBuffer full = chunk;
+        chunk = spare;
+        spare = full;
+        spare.clear();
+        pendingOffset = HEADER + chunks * (long) CHUNK_BYTES;
+        pending = channel.write(spare, pendingOffset);
+        chunks++;
+        slot = 0;
+    }
+
+    private void await() throws IOException {
+        while (pending != null) {
+            done(pending);
+            pending = spare.hasRemaining() ? channel.write(spare, pendingOffset + spare.position()) : null;
+        }
+    }
+
+    private static int done(Future<Integer> write) throws IOException {
+        try {
+            return write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted writing a training log");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    // Pads and writes the last chunk, then the header
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (slot > 0) {
+                pad(SHOT_LO, 8);
+                pad(HIT_LO, 8);
+                pad(SHOT_HI, 4);
+                pad(HIT_HI, 4);
+                pad(ACTION, 1);
+                pad(OUTCOME, 1);
+                writeChunk();
+            }
+            await();
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(CHUNK_ROWS).putLong(rows).clear();
+            while (header.hasRemaining()) {
+                done(channel.write(header, header.position()));
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void pad(int column, int width) {
+        for (int i = column + width * slot; i < column + width * CHUNK_ROWS; i++) {
+            chunk.put(i, (byte) 0);
+        }
+    }
+
+    // Usage: TrainingLog <file> [games] [strategyA] [strategyB] [seed]
+    // Simulates the games as the Simulator does and writes a row for every
+    // shot of both players.
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        String a = args.length > 2 ? args[2] : "heatmap";
+        String b = args.length > 3 ? args[3] : "heatmap";
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        PositionCache<double[]> cache = MonteCarloStrategy.newCache();
+        Simulator simulator = new Simulator(Simulator.strategy(a, cache), Simulator.strategy(b, cache), seed);
+        try (TrainingLog log = new TrainingLog(Paths.get(args[0]))) {
+            simulator.setTrainingLog(log);
+            SimulationResult result = simulator.run(games);
+            System.out.print(result);
+            System.out.printf("%,d rows, %,.0f rows per second%n", log.getRows(),
+                    log.getRows() * 1e9 / result.getElapsedNanos());
+        }
+    }
+}
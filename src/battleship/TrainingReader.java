@@ -0,0 +1,121 @@
+package battleship;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Reads the rows of a TrainingLog through memory-mapped windows of whole
+// chunks. Row accessors take the row's index in the file; nothing is copied
+// or allocated per row.
+public class TrainingReader implements AutoCloseable {
+    private static final int WINDOW_CHUNKS = 4096; // about 850 MiB
+
+    private final FileChannel channel;
+    private final long rows;
+    private final MappedByteBuffer[] windows;
+
+    public TrainingReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(TrainingLog.HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0)
+                break;
+        }
+        header.flip();
+        if (header.remaining() < 16 || header.getInt() != TrainingLog.MAGIC
+                || header.getInt() != TrainingLog.CHUNK_ROWS)
+            throw new IOException("Not a training log: " + path);
+        rows = header.getLong();
+        long chunks = (rows + TrainingLog.CHUNK_ROWS - 1) / TrainingLog.CHUNK_ROWS;
+        if (rows < 0 || channel.size() < TrainingLog.HEADER + chunks * TrainingLog.CHUNK_BYTES)
+            throw new IOException("Truncated training log: " + path);
+        windows = new MappedByteBuffer[(int) ((chunks + WINDOW_CHUNKS - 1) / WINDOW_CHUNKS)];
+        for (int w = 0; w < windows.length; w++) {
+            long first = (long) w * WINDOW_CHUNKS;
+            long size = Math.min(WINDOW_CHUNKS, chunks - first) * TrainingLog.CHUNK_BYTES;
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, TrainingLog.HEADER
+                    + first * TrainingLog.CHUNK_BYTES, size);
+            windows[w].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private MappedByteBuffer window(long row) {
+        return windows[(int) (row / TrainingLog.CHUNK_ROWS / WINDOW_CHUNKS)];
+    }
+
+    // Offset of the chunk in its window, plus the column
+    private static int offset(long row, int column, int width) {
+        long chunk = row / TrainingLog.CHUNK_ROWS;
+        int slot = (int) (row % TrainingLog.CHUNK_ROWS);
+        return (int) (chunk % WINDOW_CHUNKS) * TrainingLog.CHUNK_BYTES + column + width * slot;
+    }
+
+    public long shotLo(long row) {
+        return window(row).getLong(offset(row, TrainingLog.SHOT_LO, 8));
+    }
+
+    public long shotHi(long row) {
+        return window(row).getInt(offset(row, TrainingLog.SHOT_HI, 4)) & 0xFFFFFFFFL;
+    }
+
+    public long hitLo(long row) {
+        return window(row).getLong(offset(row, TrainingLog.HIT_LO, 8));
+    }
+
+    public long hitHi(long row) {
+        return window(row).getInt(offset(row, TrainingLog.HIT_HI, 4)) & 0xFFFFFFFFL;
+    }
+
+    public int action(long row) {
+        return window(row).get(offset(row, TrainingLog.ACTION, 1));
+    }
+
+    public int outcome(long row) {
+        return window(row).get(offset(row, TrainingLog.OUTCOME, 1)) & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Usage: TrainingReader <file>
+    // Checks that every row's shot is new and its outcome fits what was seen,
+    // and reports the hit rate.
+    public static void main(String[] args) throws IOException {
+        try (TrainingReader reader = new TrainingReader(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            long hits = 0;
+            long won = 0;
+            long failures = 0;
+            for (long row = 0; row < reader.getRows(); row++) {
+                int cell = reader.action(row);
+                int outcome = reader.outcome(row);
+                int result = outcome & ~TrainingLog.WON;
+                boolean seen = cell < 0 || cell >= BitBoard.CELLS
+                        || Placements.contains(reader.shotLo(row), reader.shotHi(row), cell);
+                boolean hitsShot = (reader.hitLo(row) & ~reader.shotLo(row)) == 0
+                        && (reader.hitHi(row) & ~reader.shotHi(row)) == 0;
+                if (seen || !hitsShot || result > TrainingLog.SUNK)
+                    failures++;
+                if (result != TrainingLog.MISS)
+                    hits++;
+                if ((outcome & TrainingLog.WON) != 0)
+                    won++;
+            }
+            long rows = reader.getRows();
+            System.out.printf("%,d rows, %.2f%% hits, %.2f%% by the winner, %d failed checks in %.3f s%n", rows,
+                    rows == 0 ? 0.0 : hits * 100.0 / rows, rows == 0 ? 0.0 : won * 100.0 / rows, failures,
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
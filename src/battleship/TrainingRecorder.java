@@ -0,0 +1,80 @@
+package battleship;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Collects one Game's training rows as its shots arrive and appends them to a
+// TrainingLog when a fleet is destroyed, once it is known which shooter won.
+// A row holds what the shooter had seen of the target's board before the shot.
+public class TrainingRecorder implements GameListener {
+    // Every cell of both boards
+    private static final int MAX_ROWS = 2 * BitBoard.CELLS;
+
+    private final TrainingLog log;
+    private final Player[] players;
+    // Per target: shot lo, shot hi, hit lo, hit hi
+    private final long[] seen = new long[8];
+    private final long[] shots = new long[2 * MAX_ROWS];
+    private final long[] hits = new long[2 * MAX_ROWS];
+    private final byte[] actions = new byte[MAX_ROWS];
+    private final byte[] outcomes = new byte[MAX_ROWS];
+    private final byte[] targets = new byte[MAX_ROWS];
+    private int count;
+    private boolean finished;
+
+    // Attach before the first shot
+    public TrainingRecorder(Game game, TrainingLog log) {
+        if (!game.getRules().isStandardBoard())
+            throw new IllegalArgumentException("Training logs only hold 9x9 games");
+        this.log = log;
+        players = new Player[] { game.getPlayer(0), game.getPlayer(1) };
+        game.addListener(this);
+    }
+
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (finished)
+            return;
+        int target = event.getTarget() == players[0] ? 0 : 1;
+        switch (event.getType()) {
+            case HIT:
+            case MISS:
+                boolean hit = event.getType() == GameEvent.Type.HIT;
+                int cell = BitBoard.index(event.getRow(), event.getCol());
+                int base = 4 * target;
+                shots[2 * count] = seen[base];
+                shots[2 * count + 1] = seen[base + 1];
+                hits[2 * count] = seen[base + 2];
+                hits[2 * count + 1] = seen[base + 3];
+                actions[count] = (byte) cell;
+                outcomes[count] = (byte) (hit ? TrainingLog.HIT : TrainingLog.MISS);
+                targets[count] = (byte) target;
+                count++;
+                seen[base] |= BitBoard.lo(cell);
+                seen[base + 1] |= BitBoard.hi(cell);
+                if (hit) {
+                    seen[base + 2] |= BitBoard.lo(cell);
+                    seen[base + 3] |= BitBoard.hi(cell);
+                }
+                break;
+            case SUNK:
+                outcomes[count - 1] = TrainingLog.SUNK;
+                break;
+            case FLEET_DESTROYED:
+                // Whoever shot at this target won
+                for (int i = 0; i < count; i++) {
+                    if (targets[i] == target)
+                        outcomes[i] |= TrainingLog.WON;
+                }
+                finished = true;
+                try {
+                    log.append(shots, hits, actions, outcomes, count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
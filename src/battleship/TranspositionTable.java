@@ -0,0 +1,94 @@
+package battleship;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded cache of solved endgame positions, shared without locks by all the
+// threads of a search. A bucket holds two entries: the first keeps whichever
+// position of the current generation took the most work to solve, the second
+// is replaced by every other store. Each game starts a new generation, so the
+// heavy entries of earlier games age out instead of holding the first entries
+// of every bucket for good. An entry is stored as (key ^ data, data), so a reader that catches a
+// half-written entry sees a key mismatch and misses instead of reading a wrong
+// value.
+public class TranspositionTable {
+    public static final long MISSING = -1L;
+
+    private static final long EXACT = 1L << 31;
+    private static final int GENERATION_SHIFT = 24;
+    private static final int GENERATION_MASK = 0x7F;
+    private static final int WORK_MASK = (1 << GENERATION_SHIFT) - 1;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // The table takes 32 bytes a bucket
+    public TranspositionTable(int buckets) {
+        if (buckets <= 0 || Integer.bitCount(buckets) != 1)
+            throw new IllegalArgumentException("Buckets must be a power of two: " + buckets);
+        entries = new AtomicLongArray(buckets * 4);
+        mask = buckets - 1;
+    }
+
+    private static class Shared {
+        static final TranspositionTable TABLE = new TranspositionTable(1 << 18);
+    }
+
+    // One table for every EndgameStrategy, so solved positions carry over between games
+    public static TranspositionTable shared() {
+        return Shared.TABLE;
+    }
+
+    // Called as a game starts; entries stored before stop outranking new ones
+    public void newGeneration() {
+        generation.incrementAndGet();
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ key >>> 32) & mask;
+    }
+
+    // The data stored for the key, or MISSING
+    public long probe(long key) {
+        int base = bucket(key) * 4;
+        for (int i = base; i < base + 4; i += 2) {
+            long data = entries.get(i + 1);
+            if ((entries.get(i) ^ data) == key)
+                return data;
+        }
+        return MISSING;
+    }
+
+    // A value that is not exact is a lower bound. work ranks entries of the
+    // same generation for eviction, e.g. the size of the solved subtree.
+    public void store(long key, float value, boolean exact, int work) {
+        int current = generation.get() & GENERATION_MASK;
+        long data = (long) Float.floatToIntBits(value) << 32 | (exact ? EXACT : 0)
+                | (long) current << GENERATION_SHIFT | Math.min(work, WORK_MASK);
+        int base = bucket(key) * 4;
+        long kept = entries.get(base + 1);
+        boolean stale = (kept >>> GENERATION_SHIFT & GENERATION_MASK) != current;
+        int entry = stale || work >= work(kept) || (entries.get(base) ^ kept) == key ? base : base + 2;
+        entries.set(entry, key ^ data);
+        entries.set(entry + 1, data);
+    }
+
+    public static float value(long data) {
+        return Float.intBitsToFloat((int) (data >>> 32));
+    }
+
+    public static boolean isExact(long data) {
+        return (data & EXACT) != 0;
+    }
+
+    public static int work(long data) {
+        return (int) data & WORK_MASK;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package battleship;
+
+import java.util.Arrays;
+
+// Keys for Zobrist hashing of what a shooter has seen of the opponent's board:
+// the rules, each miss and hit, and each sunk piece. A position's key is the
+// XOR of the keys of everything in it, so it is updated with one XOR per shot
+// or sink, and reverted with the same XOR. Cells are row * cols + col. Keys
+// are computed by mixing rather than looked up, so any board size works.
+public final class Zobrist {
+    private static final long SEED = 0x2F0B5A4C91E3D687L;
+
+    private static final int MISS = 0;
+    private static final int HIT = 1;
+    private static final int SUNK = 2;
+
+    private Zobrist() {
+    }
+
+    // The key of an empty board; positions under different rules never share keys
+    public static long rules(RuleSet rules) {
+        long key = mix(SEED ^ (long) rules.getRows() << 32 ^ rules.getCols());
+        key = mix(key ^ Arrays.hashCode(rules.getFleet()));
+        return mix(key ^ (rules.isNoTouching() ? 1 : 0) ^ (rules.isSalvo() ? 2 : 0));
+    }
+
+    public static long shot(int cell, boolean hit) {
+        return mix(SEED + ((long) cell << 2 | (hit ? HIT : MISS)));
+    }
+
+    // A piece is known by its first cell, size and direction once sunk
+    public static long sunk(int cell, int size, boolean horizontal) {
+        boolean across = size > 1 && horizontal;
+        return mix(SEED + ((long) cell << 2 | SUNK) ^ (long) size << 40 ^ (across ? 1L << 62 : 0));
+    }
+
+    public static long sunk(Piece piece, int cols) {
+        return sunk(piece.getStartRow() * cols + piece.getStartCol(), piece.getSize(), piece.isHorizontal());
+    }
+
+    // Stafford's variant 13 of the MurmurHash3 finalizer, as in SplittableRandom
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}